@@ -3,17 +3,28 @@ package com.endyary.mobsoftstore.application;
 import com.endyary.mobsoftstore.rating.Rating;
 import com.endyary.mobsoftstore.user.User;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
-import java.text.DecimalFormat;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Application entity class
+ * Application entity class.
+ * It is kept in the second-level cache, the columns changed with JDBC (download count and rating aggregates)
+ * evict it through {@link ApplicationCacheEvictor}.
  */
 @Entity
 @Table(name = "applications")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Application.CACHE_REGION)
 public class Application {
+
+    public static final String CACHE_REGION = "application";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -31,24 +42,54 @@ public class Application {
     @JoinColumn(name = "developer_id", referencedColumnName = "id")
     private User createdBy;
 
-    @Lob
-    @Column(name = "archive", columnDefinition = "BLOB", nullable = false)
-    private byte[] archive;
+    /**
+     * Temporary file holding a newly uploaded archive. The archive column is not mapped so that
+     * loading an application never pulls the archive into memory,
+     * it is written and streamed by {@link ArchiveStore} instead.
+     */
+    @Transient
+    private Path archiveFile;
 
     @Column(nullable = false)
     private String archiveName;
 
-    @Lob
-    @Column(name = "pictureSmall", columnDefinition = "BLOB")
+    /**
+     * Logo image variants created for a newly uploaded application, stored by {@link ImageRepository}
+     */
+    @Transient
+    private Map<Integer, ApplicationImage> imageVariants;
+
+    /**
+     * Logo images of a newly uploaded application, stored as shared blobs by {@link BlobRepository}
+     */
+    @Transient
     private byte[] pictureSmall;
 
-    @Lob
-    @Column(name = "pictureBig", columnDefinition = "BLOB")
+    @Transient
     private byte[] pictureBig;
+
+    /**
+     * Content hashes of the logo images in the blobs table
+     */
+    @Column(name = "pictureSmallHash")
+    private String pictureSmallHash;
+
+    @Column(name = "pictureBigHash")
+    private String pictureBigHash;
+
     @Column(name = "downloadCount", nullable = false)
     private int downloadCount;
 
-    @OneToMany(mappedBy = "application", fetch = FetchType.EAGER)
+    /**
+     * Rating aggregates, maintained by {@link RatingAggregateRepository} only
+     */
+    @Column(name = "ratingSum", insertable = false, updatable = false)
+    private long ratingSum;
+
+    @Column(name = "ratingCount", insertable = false, updatable = false)
+    private int ratingCount;
+
+    @OneToMany(mappedBy = "application", fetch = FetchType.LAZY)
     private List<Rating> ratings;
 
     private LocalDateTime createdDate;
@@ -93,12 +134,12 @@ public class Application {
         this.createdBy = createdBy;
     }
 
-    public byte[] getArchive() {
-        return archive;
+    public Path getArchiveFile() {
+        return archiveFile;
     }
 
-    public void setArchive(byte[] archive) {
-        this.archive = archive;
+    public void setArchiveFile(Path archiveFile) {
+        this.archiveFile = archiveFile;
     }
 
     public String getArchiveName() {
@@ -125,6 +166,30 @@ public class Application {
         this.pictureBig = pictureBig;
     }
 
+    public String getPictureSmallHash() {
+        return pictureSmallHash;
+    }
+
+    public void setPictureSmallHash(String pictureSmallHash) {
+        this.pictureSmallHash = pictureSmallHash;
+    }
+
+    public String getPictureBigHash() {
+        return pictureBigHash;
+    }
+
+    public void setPictureBigHash(String pictureBigHash) {
+        this.pictureBigHash = pictureBigHash;
+    }
+
+    public Map<Integer, ApplicationImage> getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(Map<Integer, ApplicationImage> imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
     public int getDownloadCount() {
         return downloadCount;
     }
@@ -133,6 +198,14 @@ public class Application {
         this.downloadCount = downloadCount;
     }
 
+    public long getRatingSum() {
+        return ratingSum;
+    }
+
+    public int getRatingCount() {
+        return ratingCount;
+    }
+
     public List<Rating> getRatings() {
         return ratings;
     }
@@ -155,11 +228,21 @@ public class Application {
      * @return calculated average rating
      */
     public String getAverageRating() {
+        return formatAverageRating(ratingSum, ratingCount);
+    }
 
-        if (this.getRatings().isEmpty()) {
+    /**
+     * Returns average rating value rounded to one decimal place
+     *
+     * @param ratingSum   sum of all ratings
+     * @param ratingCount number of ratings
+     * @return calculated average rating, "0" if there are no ratings
+     */
+    public static String formatAverageRating(long ratingSum, int ratingCount) {
+        if (ratingCount == 0) {
             return "0";
         }
-        float sum = this.getRatings().stream().mapToInt(Rating::getRating).sum();
-        return new DecimalFormat("0.0").format(sum / this.getRatings().size());
+        long tenths = Math.round(ratingSum * 10.0 / ratingCount);
+        return tenths / 10 + "." + tenths % 10;
     }
 }
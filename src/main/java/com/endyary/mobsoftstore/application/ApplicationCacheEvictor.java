@@ -0,0 +1,54 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evicts applications from the second-level cache after their mapped columns are changed with JDBC,
+ * which Hibernate doesn't know about. Within a transaction the applications are evicted again
+ * after the completion, so an application cached meanwhile by a concurrent reader doesn't keep the old values.
+ */
+@Component
+public class ApplicationCacheEvictor {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public ApplicationCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Evicts the application from the second-level cache
+     *
+     * @param applicationId application's ID
+     */
+    public void evict(long applicationId) {
+        evict(List.of(applicationId));
+    }
+
+    /**
+     * Evicts the applications from the second-level cache
+     *
+     * @param applicationIds applications' IDs
+     */
+    public void evict(Collection<Long> applicationIds) {
+        evictNow(applicationIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(applicationIds);
+                }
+            });
+        }
+    }
+
+    private void evictNow(Collection<Long> applicationIds) {
+        applicationIds.forEach(id -> entityManagerFactory.getCache().evict(Application.class, id));
+    }
+}
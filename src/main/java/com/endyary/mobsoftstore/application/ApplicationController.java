@@ -2,15 +2,25 @@ package com.endyary.mobsoftstore.application;
 
 import com.endyary.mobsoftstore.config.View;
 import com.endyary.mobsoftstore.rating.RatingRequest;
+import com.endyary.mobsoftstore.search.Suggestion;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -19,68 +29,122 @@ import java.util.List;
 @Controller
 public class ApplicationController {
 
+    private static final int PAGE_SIZE = 20;
+
+    private static final int SEARCH_RESULT_LIMIT = 50;
+
+    private static final int SUGGESTION_LIMIT = 8;
+
     private final ApplicationService applicationService;
 
-    public ApplicationController(ApplicationService applicationService) {
+    private final ArchiveDownloadHandler archiveDownloadHandler;
+
+    private final UploadJobService uploadJobService;
+
+    private final HeaderFragmentCache headerFragmentCache;
+
+    public ApplicationController(ApplicationService applicationService,
+                                 ArchiveDownloadHandler archiveDownloadHandler,
+                                 UploadJobService uploadJobService, HeaderFragmentCache headerFragmentCache) {
         this.applicationService = applicationService;
+        this.archiveDownloadHandler = archiveDownloadHandler;
+        this.uploadJobService = uploadJobService;
+        this.headerFragmentCache = headerFragmentCache;
     }
 
     @GetMapping("/")
-    public String homePage(Model model) {
-        setCommonModelAttributes(model);
+    public String homePage(Model model, HttpServletRequest request, HttpServletResponse response) {
+        setCommonModelAttributes(model, request, response);
         return View.HOME.toString();
     }
 
     @GetMapping("/applications/{category}")
-    public String getByCategory(Model model, @PathVariable String category) {
+    public String getByCategory(Model model, @PathVariable String category,
+                                @RequestParam(defaultValue = "name") String sort,
+                                @RequestParam(required = false) String after,
+                                @RequestParam(required = false) String before,
+                                HttpServletRequest request, HttpServletResponse response) {
 
         List<ApplicationResponse> appDtoList = new ArrayList<>();
 
         Category queryCategory = Category.valueOf(category.toUpperCase());
+        ApplicationSort querySort = ApplicationSort.fromParameter(sort);
 
-        List<Application> apps = applicationService.findByCategory(queryCategory);
-        apps.forEach(app -> appDtoList.add(applicationService.getDTOFromEntity(app)));
+        ApplicationPage page = applicationService.findPage(queryCategory, querySort, after, before, PAGE_SIZE);
+        page.applications().forEach(app -> appDtoList.add(applicationService.getDTOFromSummary(app)));
 
         model.addAttribute("category", category);
+        model.addAttribute("sort", querySort.name().toLowerCase());
+        model.addAttribute("sorts", Arrays.stream(ApplicationSort.values())
+                .map(Enum::name).map(String::toLowerCase).toList());
         model.addAttribute("appList", appDtoList);
-        setCommonModelAttributes(model);
+        model.addAttribute("previousCursor", page.previousCursor());
+        model.addAttribute("nextCursor", page.nextCursor());
+        setCommonModelAttributes(model, request, response);
 
         return View.HOME.toString();
     }
 
+    @GetMapping("/search")
+    public String search(Model model, @RequestParam(defaultValue = "") String q,
+                         HttpServletRequest request, HttpServletResponse response) {
+        List<ApplicationResponse> appDtoList = new ArrayList<>();
+        applicationService.search(q, SEARCH_RESULT_LIMIT)
+                .forEach(app -> appDtoList.add(applicationService.getDTOFromSummary(app)));
+
+        model.addAttribute("query", q);
+        model.addAttribute("appList", appDtoList);
+        setCommonModelAttributes(model, request, response);
+
+        return View.HOME.toString();
+    }
+
+    @GetMapping(value = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<Suggestion> suggest(@RequestParam(defaultValue = "") String prefix) {
+        return applicationService.suggest(prefix, SUGGESTION_LIMIT);
+    }
+
     @GetMapping("/details/{id}")
-    public String getById(Model model, @PathVariable long id) {
-        Application app = applicationService.findById(id);
-        model.addAttribute("app", applicationService.getDTOFromEntity(app));
+    public String getById(Model model, @PathVariable long id, WebRequest webRequest,
+                          HttpServletRequest request, HttpServletResponse response) {
+        // The client's copy is validated before the application is loaded,
+        // the header's tag covers the user name and the top list shown in the page
+        ApplicationVersion version = applicationService.findVersion(id);
+        String eTag = DigestUtils.md5DigestAsHex((version.version() + "/" + headerFragmentCache.getTag())
+                .getBytes(StandardCharsets.UTF_8));
+        // Cached by the browser, but validated on every visit
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(eTag, version.modifiedDate().toEpochMilli())) {
+            return null;
+        }
+
+        ApplicationSummary app = applicationService.findSummaryById(id);
+        model.addAttribute("app", applicationService.getDTOFromSummary(app));
         model.addAttribute("rating", new RatingRequest(id, 0));
-        setCommonModelAttributes(model);
+        setCommonModelAttributes(model, request, response);
         return View.APP_DETAILS.toString();
     }
 
     @GetMapping("/download/{id}")
-    public void getArchiveById(@PathVariable long id, HttpServletResponse response, Model model) {
+    public void getArchiveById(@PathVariable long id, HttpServletRequest request, HttpServletResponse response,
+                               Model model) {
 
         Application app = applicationService.findById(id);
-        byte[] appArchive = app.getArchive();
 
         try {
-            response.setContentType("application/zip");
-            response.addHeader("Content-Disposition", "attachment; filename=" + app.getArchiveName());
-            response.setContentLength(appArchive.length);
-            OutputStream os = response.getOutputStream();
-            os.write(appArchive, 0, appArchive.length);
-            response.getOutputStream().flush();
-            os.close();
+            if (archiveDownloadHandler.handle(app, request, response)) {
+                applicationService.increaseDownloadCount(app);
+            }
         } catch (IOException e) {
             e.printStackTrace();
             model.addAttribute("message", "Error while downloading the app!");
         }
-        applicationService.increaseDownloadCount(app);
     }
 
     @GetMapping("/newapp")
-    public String newApp(Model model) {
-        setCommonModelAttributes(model);
+    public String newApp(Model model, HttpServletRequest request, HttpServletResponse response) {
+        setCommonModelAttributes(model, request, response);
         model.addAttribute("app", new ApplicationRequest());
         return View.NEW_APP.toString();
     }
@@ -88,44 +152,53 @@ public class ApplicationController {
     @PostMapping(value = "/addnewapp", consumes = {"multipart/form-data"})
     public String addNewApp(@ModelAttribute("app") ApplicationRequest appRequest,
                             @RequestParam("archive") MultipartFile archive,
-                            Model model) {
+                            Model model, HttpServletRequest request, HttpServletResponse response) {
         String message = null;
-        setCommonModelAttributes(model);
+        setCommonModelAttributes(model, request, response);
 
         if (applicationService.existsByName(appRequest.getName())) {
             message = String.format("Application with the name %s already exist!", appRequest.getName());
         } else {
             try {
-                Application application = applicationService.getEntityFromDTO(appRequest, archive);
-                application = applicationService.save(application);
-                if (application.getId() != null) {
-                    message = "Application successfully added!";
-                }
-            } catch (ArchiveProcessingException | IOException exc) {
-                if (exc.getClass().equals(IOException.class) || exc.getCause() != null) {
-                    exc.printStackTrace();
-                }
-                message = exc.getMessage();
+                UploadJob job = uploadJobService.submit(appRequest, archive);
+                model.addAttribute("jobId", job.id());
+            } catch (TaskRejectedException exc) {
+                message = "Too many uploads in progress, please try again later!";
+            } catch (IOException exc) {
+                exc.printStackTrace();
+                message = "Error while processing the archive!";
             }
         }
         model.addAttribute("message", message);
         return View.NEW_APP.toString();
     }
 
+    @GetMapping(value = "/uploads/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<UploadJobResponse> getUploadStatus(@PathVariable String id) {
+        return ResponseEntity.of(uploadJobService.findStatus(id));
+    }
+
     @PostMapping("/apprating")
-    public String appRating(@ModelAttribute("rating") RatingRequest ratingRequest, Model model) {
+    public String appRating(@ModelAttribute("rating") RatingRequest ratingRequest, Model model,
+                            HttpServletRequest request, HttpServletResponse response) {
 
         applicationService.addRating(ratingRequest);
-        Application app = applicationService.findById(ratingRequest.getAppId());
-        model.addAttribute("app", applicationService.getDTOFromEntity(app));
+        ApplicationSummary app = applicationService.findSummaryById(ratingRequest.getAppId());
+        model.addAttribute("app", applicationService.getDTOFromSummary(app));
         model.addAttribute("rating", new RatingRequest(ratingRequest.getAppId(), ratingRequest.getRating()));
-        setCommonModelAttributes(model);
+        setCommonModelAttributes(model, request, response);
 
         return View.APP_DETAILS.toString();
     }
 
-    private void setCommonModelAttributes(Model model) {
+    /**
+     * Adds the categories and the header rendered by {@link HeaderFragmentCache},
+     * so the search query has to be added before
+     */
+    private void setCommonModelAttributes(Model model, HttpServletRequest request, HttpServletResponse response) {
         model.addAttribute("categories", applicationService.getCategories());
-        model.addAttribute("topLogos", applicationService.getImagesForTopDownloaded());
+        model.addAttribute(HeaderFragmentCache.MODEL_ATTRIBUTE,
+                headerFragmentCache.getHeader(request, response, (String) model.getAttribute("query")));
     }
 }
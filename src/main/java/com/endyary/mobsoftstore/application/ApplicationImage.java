@@ -0,0 +1,11 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Application logo image record
+ *
+ * @param content     image content
+ * @param contentType image media type
+ * @param hash        hex encoded SHA-256 hash of the content
+ */
+public record ApplicationImage(byte[] content, String contentType, String hash) {
+}
@@ -0,0 +1,13 @@
+package com.endyary.mobsoftstore.application;
+
+import java.util.List;
+
+/**
+ * One page of the application listing
+ *
+ * @param applications   applications on the page
+ * @param previousCursor cursor of the previous page, null on the first page
+ * @param nextCursor     cursor of the next page, null on the last page
+ */
+public record ApplicationPage(List<ApplicationSummary> applications, String previousCursor, String nextCursor) {
+}
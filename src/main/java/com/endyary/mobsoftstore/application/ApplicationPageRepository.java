@@ -0,0 +1,99 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads pages of the application listing with keyset (seek) pagination on (sort key, id).
+ * A page continues right after (or before) the cursor's row through the matching index,
+ * so reading a deep page costs the same as reading the first one.
+ */
+@Repository
+public class ApplicationPageRepository {
+
+    private static final String SUMMARY_COLUMNS =
+            "id, name, category, description, downloadCount, ratingSum, ratingCount";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ApplicationPageRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns a page of applications of the given category.
+     * Without cursors the first page is returned.
+     *
+     * @param category application's category
+     * @param sort     sort order
+     * @param after    decoded {@link ApplicationPage#nextCursor()}, or null
+     * @param before   decoded {@link ApplicationPage#previousCursor()}, or null
+     * @param size     page size
+     * @return {@link ApplicationPage}
+     */
+    public ApplicationPage findPage(Category category, ApplicationSort sort, PageCursor after, PageCursor before, int size) {
+        boolean backward = after == null && before != null;
+        PageCursor cursor = backward ? before : after;
+
+        // the index is scanned in the opposite direction when reading the previous page
+        boolean descending = sort.isDescending() != backward;
+        String direction = descending ? " DESC" : "";
+        String comparison = descending ? "<" : ">";
+        String column = sort.getColumn();
+
+        // H2 reads the rows in index order only if ORDER BY starts with the first index column
+        String orderBy = " ORDER BY category, " + column + direction + ", id" + direction + " LIMIT ?";
+        String select = "SELECT " + SUMMARY_COLUMNS + ", " + column + " FROM applications WHERE category = ?";
+
+        List<Object> args = new ArrayList<>();
+        String sql;
+        if (cursor == null) {
+            sql = select + orderBy;
+            args.add(category.name());
+        } else {
+            // rows with the cursor's key and the following keys are read by two index seeks.
+            // H2 seeks past a run of equal keys (e.g. unrated applications) only with an inclusive bound,
+            // so the following keys are read from the adjacent key where there is one.
+            Object adjacentKey = sort.adjacentKey(cursor.key(), descending);
+            String followingKeys = adjacentKey == null ? comparison : comparison + "=";
+            sql = "(" + select + " AND " + column + " = ? AND id " + comparison + " ?" + orderBy + ") UNION ALL (" +
+                    select + " AND " + column + " " + followingKeys + " ?" + orderBy + ")" +
+                    " ORDER BY " + column + direction + ", id" + direction + " LIMIT ?";
+            args.addAll(List.of(category.name(), cursor.key(), cursor.id(), size + 1,
+                    category.name(), adjacentKey == null ? cursor.key() : adjacentKey, size + 1));
+        }
+        args.add(size + 1);
+
+        List<ApplicationSummary> applications = new ArrayList<>();
+        List<PageCursor> cursors = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            applications.add(new ApplicationSummary(rs.getLong("id"), rs.getString("name"),
+                    Category.valueOf(rs.getString("category")), rs.getString("description"),
+                    rs.getInt("downloadCount"), rs.getLong("ratingSum"), rs.getInt("ratingCount")));
+            cursors.add(new PageCursor(sort.readKey(rs), rs.getLong("id")));
+        }, args.toArray());
+
+        boolean hasMore = applications.size() > size;
+        if (hasMore) {
+            applications.remove(size);
+            cursors.remove(size);
+        }
+        if (backward) {
+            Collections.reverse(applications);
+            Collections.reverse(cursors);
+        }
+        if (applications.isEmpty()) {
+            return new ApplicationPage(applications, null, null);
+        }
+
+        boolean hasPrevious = backward ? hasMore : cursor != null;
+        boolean hasNext = backward || hasMore;
+        return new ApplicationPage(applications,
+                hasPrevious ? cursors.get(0).encode() : null,
+                hasNext ? cursors.get(cursors.size() - 1).encode() : null);
+    }
+}
@@ -1,17 +1,26 @@
 package com.endyary.mobsoftstore.application;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Application repository definition
  */
 public interface ApplicationRepository extends JpaRepository<Application, Long> {
 
-    List<Application> findByCategory(Category category);
+    String SUMMARY_SELECT = "SELECT new com.endyary.mobsoftstore.application.ApplicationSummary(a.id, a.name, " +
+            "a.category, a.description, a.downloadCount, a.ratingSum, a.ratingCount) FROM Application a ";
 
-    boolean existsByName(String name);
+    @Query(SUMMARY_SELECT + "WHERE a.id = :id")
+    Optional<ApplicationSummary> findSummaryById(@Param("id") Long id);
+
+    @Query(SUMMARY_SELECT + "WHERE a.id IN :ids")
+    List<ApplicationSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
 
-    List<Application> findTop5ByOrderByDownloadCountDesc();
+    boolean existsByName(String name);
 }
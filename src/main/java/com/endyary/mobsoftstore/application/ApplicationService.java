@@ -3,14 +3,25 @@ package com.endyary.mobsoftstore.application;
 import com.endyary.mobsoftstore.rating.Rating;
 import com.endyary.mobsoftstore.rating.RatingRepository;
 import com.endyary.mobsoftstore.rating.RatingRequest;
+import com.endyary.mobsoftstore.search.NameSuggester;
+import com.endyary.mobsoftstore.search.SearchIndex;
+import com.endyary.mobsoftstore.search.Suggestion;
 import com.endyary.mobsoftstore.user.User;
 import com.endyary.mobsoftstore.user.UserService;
-import org.springframework.cache.annotation.CacheEvict;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Stream;
@@ -21,6 +32,8 @@ import java.util.stream.Stream;
 @Service
 public class ApplicationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationService.class);
+
     private final ApplicationRepository applicationRepository;
 
     private final ArchiveInspector archiveInspector;
@@ -29,12 +42,51 @@ public class ApplicationService {
 
     private final RatingRepository ratingRepository;
 
+    private final ArchiveStore archiveStore;
+
+    private final DownloadCounter downloadCounter;
+
+    private final DownloadLeaderboard downloadLeaderboard;
+
+    private final ImageRepository imageRepository;
+
+    private final ImageProcessor imageProcessor;
+
+    private final RatingAggregateRepository ratingAggregateRepository;
+
+    private final ApplicationPageRepository applicationPageRepository;
+
+    private final SearchIndex searchIndex;
+
+    private final NameSuggester nameSuggester;
+
+    private final BlobRepository blobRepository;
+
+    private final ApplicationVersionRepository applicationVersionRepository;
+
     public ApplicationService(ApplicationRepository applicationRepository, ArchiveInspector archiveInspector,
-                              UserService userService, RatingRepository ratingRepository) {
+                              UserService userService, RatingRepository ratingRepository,
+                              ArchiveStore archiveStore, DownloadCounter downloadCounter,
+                              DownloadLeaderboard downloadLeaderboard, ImageRepository imageRepository,
+                              ImageProcessor imageProcessor, RatingAggregateRepository ratingAggregateRepository,
+                              ApplicationPageRepository applicationPageRepository, SearchIndex searchIndex,
+                              NameSuggester nameSuggester, BlobRepository blobRepository,
+                              ApplicationVersionRepository applicationVersionRepository) {
         this.applicationRepository = applicationRepository;
         this.archiveInspector = archiveInspector;
         this.userService = userService;
         this.ratingRepository = ratingRepository;
+        this.archiveStore = archiveStore;
+        this.downloadCounter = downloadCounter;
+        this.downloadLeaderboard = downloadLeaderboard;
+        this.imageRepository = imageRepository;
+        this.imageProcessor = imageProcessor;
+        this.ratingAggregateRepository = ratingAggregateRepository;
+        this.applicationPageRepository = applicationPageRepository;
+        this.searchIndex = searchIndex;
+        this.nameSuggester = nameSuggester;
+        this.blobRepository = blobRepository;
+        this.applicationVersionRepository = applicationVersionRepository;
     }
 
     /**
@@ -49,38 +101,47 @@ public class ApplicationService {
     }
 
     /**
-     * Returns list of images for most downloaded applications
+     * Returns logo image of the given size for the application
      *
-     * @return The result list
+     * @param appId Application's ID
+     * @param size  image variant size
+     * @return Optional image, empty if the application or the image variant doesn't exist
      */
-    @Cacheable("topAppLogo")
-    public List<String> getImagesForTopDownloaded() {
-        List<Application> appList = applicationRepository.findTop5ByOrderByDownloadCountDesc();
-        List<String> byteStringContent = new ArrayList<>();
-        appList.forEach(app -> byteStringContent.add(Base64.getEncoder().encodeToString(app.getPictureSmall())));
-        return byteStringContent;
+    @Cacheable("appImage")
+    public Optional<ApplicationImage> getImage(long appId, int size) {
+        return imageRepository.findImage(appId, size);
+    }
+
+    /**
+     * Returns URL of the application's logo image of the given size
+     *
+     * @param appId Application's ID
+     * @param size  image size
+     * @return image URL (relative to the context path)
+     */
+    public String getImageUrl(long appId, int size) {
+        return "/images/" + appId + "/" + size;
     }
 
     /**
      * Sets values for both image attributes by using the
-     * {@link Application}'s archive content
+     * {@link Application}'s archive content and creates the image variants
      *
      * @param application {@link Application} instance
      * @throws ArchiveProcessingException if an I/O error occurs
      */
     public void setImagesContent(Application application) throws ArchiveProcessingException {
         try {
-            Map<String, byte[]> entryMap = archiveInspector.getContentMap(application.getArchive());
+            InspectedArchive inspectedArchive = archiveInspector.inspect(application.getArchiveFile());
 
-            if (!archiveInspector.isArchiveValid(entryMap, application.getName(), application.getArchiveName())) {
+            if (!inspectedArchive.matches(application.getName(), application.getArchiveName())) {
                 throw new ArchiveProcessingException("Archive is not valid!", null);
             }
 
-            Map<String, String> imageNameMap = archiveInspector.getImageNameMap(entryMap);
-            Map<String, byte[]> imageContentMap = archiveInspector.getImageContentMap(imageNameMap, entryMap);
-
-            application.setPictureSmall(imageContentMap.get(ArchiveInspector.PICTURE_128_NAME));
-            application.setPictureBig(imageContentMap.get(ArchiveInspector.PICTURE_512_NAME));
+            application.setPictureSmall(inspectedArchive.pictureSmall());
+            application.setPictureBig(inspectedArchive.pictureBig());
+            application.setImageVariants(
+                    imageProcessor.createVariants(application.getPictureSmall(), application.getPictureBig()));
         } catch (IOException e) {
             throw new ArchiveProcessingException("Error while processing the archive!", e);
         }
@@ -98,62 +159,281 @@ public class ApplicationService {
     }
 
     /**
-     * Returns list of applications for the given category
+     * Returns a page of applications for the given category.
+     * Without cursors (or with a cursor which is not valid) the first page is returned.
      *
      * @param category application's category
-     * @return The result list
+     * @param sort     sort order
+     * @param after    cursor of the next page, or null
+     * @param before   cursor of the previous page, or null
+     * @param size     page size
+     * @return {@link ApplicationPage}
+     */
+    public ApplicationPage findPage(Category category, ApplicationSort sort, String after, String before, int size) {
+        PageCursor afterCursor = null;
+        PageCursor beforeCursor = null;
+        try {
+            afterCursor = after == null ? null : PageCursor.decode(after, sort);
+            beforeCursor = before == null ? null : PageCursor.decode(before, sort);
+        } catch (IllegalArgumentException e) {
+            afterCursor = null;
+            beforeCursor = null;
+        }
+        return applicationPageRepository.findPage(category, sort, afterCursor, beforeCursor, size);
+    }
+
+    /**
+     * Searches the applications by name and description
+     *
+     * @param query search query
+     * @param limit maximum number of results
+     * @return summaries of the found applications, best match first
+     */
+    public List<ApplicationSummary> search(String query, int limit) {
+        List<Long> ids = searchIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ApplicationSummary> summaries = new HashMap<>();
+        applicationRepository.findSummariesByIds(ids).forEach(summary -> summaries.put(summary.id(), summary));
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Returns application names starting with the given prefix (or having a word starting with it)
+     *
+     * @param prefix typed prefix
+     * @param limit  maximum number of suggestions
+     * @return suggestions, most downloaded application first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return nameSuggester.suggest(prefix, limit);
+    }
+
+    /**
+     * Returns summary of the application for the given ID
+     *
+     * @param id application's ID
+     * @return {@link ApplicationSummary}
      */
-    public List<Application> findByCategory(Category category) {
-        return applicationRepository.findByCategory(category);
+    public ApplicationSummary findSummaryById(Long id) {
+        return applicationRepository.findSummaryById(id).orElseThrow(
+                () -> new RuntimeException(String.format("Application with ID: %d not found!", id)));
+    }
+
+    /**
+     * Returns the current version of the application's details
+     *
+     * @param id application's ID
+     * @return {@link ApplicationVersion}
+     */
+    public ApplicationVersion findVersion(Long id) {
+        return applicationVersionRepository.find(id).orElseThrow(
+                () -> new RuntimeException(String.format("Application with ID: %d not found!", id)));
     }
 
     /**
      * Saves application instance in the DB.
-     * It is used for both create and update.
+     * It is used for both create and update, an update bumps the application's version.
+     * The archive is written only if the application holds a newly uploaded content,
+     * it is streamed from the uploaded file, which is deleted afterwards.
+     * New logo images are stored as shared blobs, the blobs of the replaced ones are released.
+     * The in-memory search index, name suggestions and top downloads are updated only after the commit,
+     * a rolled back save doesn't show up in them.
      *
      * @param application {@link Application}
      * @return saved {@link Application}
      */
+    @Transactional
     public Application save(Application application) {
-        return applicationRepository.save(application);
+        try {
+            boolean isNew = application.getId() == null;
+            List<String> releasedHashes = new ArrayList<>();
+            if (application.getPictureSmall() != null) {
+                releasedHashes.add(application.getPictureSmallHash());
+                application.setPictureSmallHash(blobRepository.put(application.getPictureSmall()));
+            }
+            if (application.getPictureBig() != null) {
+                releasedHashes.add(application.getPictureBigHash());
+                application.setPictureBigHash(blobRepository.put(application.getPictureBig()));
+            }
+            // Flushed, so the replaced images are not referenced anymore when they are released
+            Application savedApplication = applicationRepository.saveAndFlush(application);
+            if (application.getArchiveFile() != null) {
+                try (InputStream content = Files.newInputStream(application.getArchiveFile())) {
+                    archiveStore.save(savedApplication.getId(), content);
+                } catch (IOException e) {
+                    throw new ArchiveProcessingException("Error while storing the archive!", e);
+                }
+            }
+            if (application.getImageVariants() != null) {
+                imageRepository.saveImages(savedApplication.getId(), application.getImageVariants());
+            }
+            releasedHashes.stream().filter(Objects::nonNull).forEach(blobRepository::release);
+            if (!isNew) {
+                applicationVersionRepository.increment(savedApplication.getId());
+            }
+            afterCommit(() -> {
+                if (isNew) {
+                    downloadLeaderboard.add(savedApplication.getId(), savedApplication.getCategory(),
+                            savedApplication.getDownloadCount());
+                    nameSuggester.add(savedApplication.getId(), savedApplication.getName(),
+                            savedApplication.getDownloadCount());
+                } else {
+                    nameSuggester.rename(savedApplication.getId(), savedApplication.getName());
+                }
+                searchIndex.add(savedApplication.getId(), savedApplication.getName(),
+                        savedApplication.getDescription());
+            });
+            return savedApplication;
+        } finally {
+            deleteArchiveFile(application);
+        }
     }
 
     /**
-     * Creates {@link ApplicationResponse} for the given {@link Application}
+     * Returns the size of the application's archive
      *
-     * @param application {@link Application}
+     * @param id Application's ID
+     * @return archive size in bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public long getArchiveSize(Long id) throws IOException {
+        return archiveStore.getSize(id);
+    }
+
+    /**
+     * Streams the application's archive to the given output stream
+     * without loading the whole archive into memory.
+     * The servlet stream isn't a channel the OS can write to directly, so the content is copied through
+     * a buffer in chunks - only the sendfile path of {@link ArchiveDownloadHandler} avoids this copy.
+     *
+     * @param id  Application's ID
+     * @param out target stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeArchive(Long id, OutputStream out) throws IOException {
+        archiveStore.transferTo(id, 0, -1, Channels.newChannel(out));
+    }
+
+    /**
+     * Streams the given byte range of the application's archive to the output stream,
+     * copied through a buffer like {@link #writeArchive(Long, OutputStream)}
+     *
+     * @param id       Application's ID
+     * @param position zero based position of the first byte
+     * @param length   number of bytes to write
+     * @param out      target stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeArchive(Long id, long position, long length, OutputStream out) throws IOException {
+        archiveStore.transferTo(id, position, length, Channels.newChannel(out));
+    }
+
+    /**
+     * Returns the content hash of the application's archive
+     *
+     * @param id Application's ID
+     * @return hex encoded SHA-256 hash
+     * @throws IOException if an I/O error occurs
+     */
+    public String getArchiveHash(Long id) throws IOException {
+        return archiveStore.getHash(id);
+    }
+
+    /**
+     * Returns the file holding the application's archive, if the archive store keeps it in the file system
+     *
+     * @param id Application's ID
+     * @return Optional archive file path
+     */
+    public Optional<Path> getArchivePath(Long id) {
+        return archiveStore.getPath(id);
+    }
+
+    /**
+     * Creates {@link ApplicationResponse} for the given {@link ApplicationSummary}
+     *
+     * @param summary {@link ApplicationSummary}
      * @return resulting {@link ApplicationResponse}
      */
-    public ApplicationResponse getDTOFromEntity(Application application) {
-        return new ApplicationResponse(application.getId(), application.getName(),
-                application.getCategory().toString(), application.getDescription(),
-                Base64.getEncoder().encodeToString(application.getPictureSmall()),
-                Base64.getEncoder().encodeToString(application.getPictureBig()),
-                application.getDownloadCount(), application.getAverageRating(), application.getRatings().size());
+    public ApplicationResponse getDTOFromSummary(ApplicationSummary summary) {
+        return new ApplicationResponse(summary.id(), summary.name(),
+                summary.category().toString(), summary.description(),
+                getImageUrl(summary.id(), ImageProcessor.ICON_IMAGE_SIZE),
+                getImageUrl(summary.id(), ImageProcessor.SMALL_IMAGE_SIZE),
+                getImageUrl(summary.id(), ImageProcessor.BIG_IMAGE_SIZE),
+                summary.downloadCount() + (int) downloadCounter.getPending(summary.id()),
+                Application.formatAverageRating(summary.ratingSum(), summary.ratingCount()),
+                summary.ratingCount());
     }
 
     /**
-     * Creates {@link Application} from the given {@link ApplicationRequest}
-     * and uploaded archive file
+     * Creates {@link Application} from the given {@link ApplicationRequest} and uploaded archive file,
+     * the archive is validated and the logo images are extracted from it.
+     * If the archive is not valid the file is deleted.
      *
-     * @param appRequest {@link ApplicationRequest}
-     * @param archive    {@link MultipartFile} archive
+     * @param appRequest  {@link ApplicationRequest}
+     * @param archiveName original name of the archive
+     * @param archiveFile uploaded archive file
+     * @param createdBy   developer uploading the application
      * @return resulting {@link Application}
+     * @throws ArchiveProcessingException if the archive is not valid or can't be processed
      */
-    public Application getEntityFromDTO(ApplicationRequest appRequest, MultipartFile archive) throws IOException {
+    public Application getEntityFromDTO(ApplicationRequest appRequest, String archiveName, Path archiveFile,
+                                        User createdBy) {
         Application app = new Application();
         app.setName(appRequest.getName());
         app.setCategory(Category.valueOf(appRequest.getCategory().toUpperCase()));
         app.setDescription(appRequest.getDescription());
-        app.setArchive(archive.getBytes());
-        app.setArchiveName(archive.getOriginalFilename());
-
-        app.setCreatedBy(userService.getCurrentUser());
-        setImagesContent(app);
+        app.setArchiveName(archiveName);
+        app.setArchiveFile(archiveFile);
+        app.setCreatedBy(createdBy);
+        app.setCreatedDate(LocalDateTime.now());
+        try {
+            setImagesContent(app);
+        } catch (RuntimeException e) {
+            deleteArchiveFile(app);
+            throw e;
+        }
 
         return app;
     }
 
+    /**
+     * Deletes the uploaded archive file held by the application, if any
+     *
+     * @param application {@link Application}
+     */
+    private void deleteArchiveFile(Application application) {
+        if (application.getArchiveFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(application.getArchiveFile());
+        } catch (IOException e) {
+            logger.warn("Uploaded archive {} can't be deleted", application.getArchiveFile(), e);
+        }
+        application.setArchiveFile(null);
+    }
+
+    /**
+     * Runs the action after the current transaction commits (immediately without a transaction),
+     * so the in-memory structures never hold a save which is rolled back
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * Checks whether the application exists with the given name
      *
@@ -165,41 +445,54 @@ public class ApplicationService {
     }
 
     /**
-     * Increases the download count and triggers the cache clearing
+     * Counts a download of the given application.
+     * The count is kept in memory and written to the DB in batches by {@link DownloadCounter},
+     * while {@link DownloadLeaderboard} is updated immediately.
      *
      * @param app the downloaded application
      */
-    @CacheEvict(value = "topAppLogo", allEntries = true)
     public void increaseDownloadCount(Application app) {
-        app.setDownloadCount(app.getDownloadCount() + 1);
-        save(app);
+        downloadCounter.increment(app.getId());
+        downloadLeaderboard.increment(app.getId());
+        nameSuggester.increment(app.getId());
     }
 
     /**
      * Adds Application rating using the given request object.
      * As one user can have only one rating per application the existing rating will be updated.
+     * The existing rating is locked until the end of the transaction, so the aggregates of the application
+     * are updated in the same transaction by the difference to the rating which is actually replaced.
      *
      * @param ratingRequest request object
      * @return created/updated rating object
      */
+    @Transactional
     public Rating addRating(RatingRequest ratingRequest) {
+        int ratingValue = ratingRequest.getRating();
+        if (ratingValue < RatingAggregateRepository.MIN_RATING || ratingValue > RatingAggregateRepository.MAX_RATING) {
+            throw new IllegalArgumentException(String.format("Rating %d is not valid!", ratingValue));
+        }
 
         Application app = new Application();
         app.setId(ratingRequest.getAppId());
         User user = userService.getCurrentUser();
 
         Rating rating;
+        Integer previousRating = null;
         Optional<Rating> ratingResult = ratingRepository.getByApplicationAndUser(app, user);
         if (ratingResult.isPresent()) {
             rating = ratingResult.get();
+            previousRating = rating.getRating();
         } else {
             rating = new Rating();
             rating.setApplication(app);
             rating.setUser(user);
         }
-        rating.setRating(ratingRequest.getRating());
+        rating.setRating(ratingValue);
         rating.setCreatedDate(LocalDateTime.now());
 
-        return ratingRepository.save(rating);
+        rating = ratingRepository.save(rating);
+        ratingAggregateRepository.applyRating(app.getId(), previousRating, ratingValue);
+        return rating;
     }
 }
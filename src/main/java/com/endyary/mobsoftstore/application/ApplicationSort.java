@@ -0,0 +1,101 @@
+package com.endyary.mobsoftstore.application;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Sort orders of the application listing.
+ * Every order is backed by an index on (category, sort column, id) in both directions,
+ * so pages are read with a keyset (seek) condition instead of an offset.
+ */
+public enum ApplicationSort {
+    NAME("name", false),
+    DOWNLOADS("downloadCount", true),
+    RATING("ratingAverage", true),
+    NEWEST("createdDate", true);
+
+    private final String column;
+
+    private final boolean descending;
+
+    ApplicationSort(String column, boolean descending) {
+        this.column = column;
+        this.descending = descending;
+    }
+
+    /**
+     * Returns the sort order of a request parameter, case is ignored
+     *
+     * @param parameter sort parameter
+     * @return The sort order, {@link #NAME} for an unknown parameter
+     */
+    public static ApplicationSort fromParameter(String parameter) {
+        for (ApplicationSort sort : values()) {
+            if (sort.name().equalsIgnoreCase(parameter)) {
+                return sort;
+            }
+        }
+        return NAME;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Reads the sort key of the current row
+     *
+     * @param rs result set containing the sort column
+     * @return sort key
+     */
+    public Object readKey(ResultSet rs) throws SQLException {
+        return switch (this) {
+            case NAME -> rs.getString(column);
+            case DOWNLOADS -> rs.getInt(column);
+            case RATING -> rs.getDouble(column);
+            case NEWEST -> rs.getObject(column, LocalDateTime.class);
+        };
+    }
+
+    /**
+     * Returns the closest possible key following the given one in the given direction
+     *
+     * @param key        sort key
+     * @param descending direction
+     * @return adjacent key, null if it can't be determined (names)
+     */
+    public Object adjacentKey(Object key, boolean descending) {
+        return switch (this) {
+            case NAME -> null;
+            case DOWNLOADS -> (Integer) key + (descending ? -1 : 1);
+            case RATING -> descending ? Math.nextDown((Double) key) : Math.nextUp((Double) key);
+            // timestamps are stored with microsecond precision
+            case NEWEST -> descending ? ((LocalDateTime) key).minusNanos(1000) : ((LocalDateTime) key).plusNanos(1000);
+        };
+    }
+
+    /**
+     * Parses the sort key written into a page cursor
+     *
+     * @param value sort key as string
+     * @return sort key
+     * @throws IllegalArgumentException if the value is not valid for this sort order
+     */
+    public Object parseKey(String value) {
+        try {
+            return switch (this) {
+                case NAME -> value;
+                case DOWNLOADS -> Integer.valueOf(value);
+                case RATING -> Double.valueOf(value);
+                case NEWEST -> LocalDateTime.parse(value);
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Sort key %s is not valid!", value), e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Read-only Application data used by the listing and details pages.
+ * Rating values are read from the denormalized aggregates, so neither BLOBs nor ratings are loaded.
+ *
+ * @param id            application's ID
+ * @param name          application's name
+ * @param category      application's category
+ * @param description   application's description
+ * @param downloadCount download count stored in the DB
+ * @param ratingSum     sum of all ratings
+ * @param ratingCount   number of ratings
+ */
+public record ApplicationSummary(long id, String name, Category category, String description, int downloadCount,
+                                 long ratingSum, int ratingCount) {
+}
@@ -0,0 +1,12 @@
+package com.endyary.mobsoftstore.application;
+
+import java.time.Instant;
+
+/**
+ * Version of the application's details, changed with every change shown on the details page
+ *
+ * @param version      version number
+ * @param modifiedDate time of the last change
+ */
+public record ApplicationVersion(long version, Instant modifiedDate) {
+}
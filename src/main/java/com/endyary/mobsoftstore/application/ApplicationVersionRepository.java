@@ -0,0 +1,46 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Maintains the version of the applications' details, so the details page can be validated
+ * by a primary key lookup of two columns instead of loading the application
+ */
+@Repository
+public class ApplicationVersionRepository {
+
+    /**
+     * Assignment bumping the version, for the statements changing the application's details
+     */
+    public static final String INCREMENT = "version = version + 1, modifiedDate = CURRENT_TIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ApplicationVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Returns the current version of the application
+     *
+     * @param applicationId application's ID
+     * @return Optional version, empty if the application doesn't exist
+     */
+    public Optional<ApplicationVersion> find(long applicationId) {
+        return jdbcTemplate.query("SELECT version, modifiedDate FROM applications WHERE id = ?",
+                (rs, rowNum) -> new ApplicationVersion(rs.getLong(1), rs.getTimestamp(2).toInstant()),
+                applicationId).stream().findFirst();
+    }
+
+    /**
+     * Bumps the version of the application
+     *
+     * @param applicationId application's ID
+     */
+    public void increment(long applicationId) {
+        jdbcTemplate.update("UPDATE applications SET " + INCREMENT + " WHERE id = ?", applicationId);
+    }
+}
@@ -0,0 +1,179 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Helper class - writes Application's archive to the response,
+ * supporting conditional and (multi) byte range requests
+ */
+@Component
+public class ArchiveDownloadHandler {
+
+    public static final String ARCHIVE_CONTENT_TYPE = "application/zip";
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private final ApplicationService applicationService;
+
+    public ArchiveDownloadHandler(ApplicationService applicationService) {
+        this.applicationService = applicationService;
+    }
+
+    /**
+     * Writes the application's archive (or the requested ranges of it) to the response.
+     * The result tells whether the response starts a new logical download, which is the case
+     * when the first byte of the archive is sent, so resumed downloads are not counted again.
+     * A HEAD request gets the headers only and is never a download.
+     *
+     * @param app      the downloaded application
+     * @param request  the current request
+     * @param response the current response
+     * @return true if the response contains the beginning of the archive, else false
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean handle(Application app, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        long size = applicationService.getArchiveSize(app.getId());
+        String eTag = "\"" + applicationService.getArchiveHash(app.getId()) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        response.setHeader(HttpHeaders.ETAG, eTag);
+
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + app.getArchiveName());
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader == null || (ifRange != null && !ifRange.equals(eTag))) {
+            response.setContentType(ARCHIVE_CONTENT_TYPE);
+            response.setContentLengthLong(size);
+            if (head) {
+                return false;
+            }
+            writeRange(app.getId(), 0, size, request, response);
+            return true;
+        }
+
+        List<long[]> ranges = getRanges(rangeHeader, size);
+        if (ranges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + size);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return false;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            response.setContentType(ARCHIVE_CONTENT_TYPE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, getContentRange(range, size));
+            response.setContentLengthLong(range[1] - range[0] + 1);
+            if (head) {
+                return false;
+            }
+            writeRange(app.getId(), range[0], range[1] - range[0] + 1, request, response);
+            return range[0] == 0;
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return false;
+        }
+        OutputStream os = response.getOutputStream();
+        for (long[] range : ranges) {
+            String partHeader = "\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + ARCHIVE_CONTENT_TYPE + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": " + getContentRange(range, size) + "\r\n\r\n";
+            os.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+            applicationService.writeArchive(app.getId(), range[0], range[1] - range[0] + 1, os);
+        }
+        os.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        os.flush();
+        return ranges.stream().anyMatch(range -> range[0] == 0);
+    }
+
+    /**
+     * Writes the given part of the archive to the response.
+     * When the archive is kept in the file system and the container supports sendfile (e.g. Tomcat NIO connector),
+     * the container is asked to send the file directly without copying it to user space. Otherwise the content
+     * is copied to the response stream by the archive store in buffered chunks.
+     */
+    private void writeRange(long appId, long position, long length, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        Optional<Path> archivePath = applicationService.getArchivePath(appId);
+        if (archivePath.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, archivePath.get().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, position);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, position + length);
+            return;
+        }
+        OutputStream os = response.getOutputStream();
+        applicationService.writeArchive(appId, position, length, os);
+        os.flush();
+    }
+
+    /**
+     * Returns the satisfiable ranges (first and last byte position) from the Range header.
+     * An empty list is returned if the header is invalid or none of the ranges can be satisfied.
+     */
+    private List<long[]> getRanges(String rangeHeader, long size) {
+        List<long[]> ranges = new ArrayList<>();
+        try {
+            for (HttpRange httpRange : HttpRange.parseRanges(rangeHeader)) {
+                long start = httpRange.getRangeStart(size);
+                long end = httpRange.getRangeEnd(size);
+                if (start < size && start <= end) {
+                    ranges.add(new long[]{start, end});
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            ranges.clear();
+        }
+        return ranges;
+    }
+
+    private String getContentRange(long[] range, long size) {
+        return BYTES_UNIT + " " + range[0] + "-" + range[1] + "/" + size;
+    }
+
+    /**
+     * Returns true if the If-None-Match header value matches the given entity tag
+     */
+    private boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(eTag) || value.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Limits checked while an application archive is inspected, so a large archive or a zip bomb is rejected
+ * before it costs more than the limits allow
+ *
+ * @param maxEntries          maximum number of archive entries
+ * @param maxTotalSize        maximum total uncompressed size of all entries (bytes)
+ * @param maxCompressionRatio maximum ratio of the uncompressed size to the compressed size
+ * @param maxImageSize        maximum uncompressed size of a logo image (bytes)
+ */
+public record ArchiveInspectionLimits(int maxEntries, long maxTotalSize, int maxCompressionRatio, int maxImageSize) {
+}
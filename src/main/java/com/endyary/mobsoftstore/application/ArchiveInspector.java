@@ -3,15 +3,21 @@ package com.endyary.mobsoftstore.application;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 /**
- * Helper class - inspects Application's archive content and gets or sets some values
+ * Helper class - inspects Application's archive content and gets or sets some values.
+ * The archive is opened as a {@link ZipFile}, whose central directory gives the entry count and sizes
+ * without inflating anything, so the limits of {@link ArchiveInspectionLimits} are checked first.
+ * Then only the {@value #PROPERTIES_FILE_EXTENSION} descriptor and the two referenced logo images are read.
  */
 @Component
 public class ArchiveInspector {
@@ -26,157 +32,141 @@ public class ArchiveInspector {
     public static final String DEFAULT_PICTURE_512 = "default_512.jpg";
 
     /**
-     * Returns Archive's entry (file) map (key - entry's name, value - entry's byte content).
+     * Largest accepted descriptor
+     */
+    static final int MAX_DESCRIPTOR_SIZE = 64 * 1024;
+
+    /**
+     * The compression ratio is checked only for archives larger than this (uncompressed),
+     * so small well compressible archives are not rejected
+     */
+    static final long MIN_RATIO_CHECK_SIZE = 1024 * 1024;
+
+    private final ArchiveInspectionLimits limits;
+
+    private final byte[] defaultPictureSmall;
+
+    private final byte[] defaultPictureBig;
+
+    public ArchiveInspector(ArchiveInspectionLimits limits) throws IOException {
+        this.limits = limits;
+        this.defaultPictureSmall = readResource(DEFAULT_PICTURE_128);
+        this.defaultPictureBig = readResource(DEFAULT_PICTURE_512);
+    }
+
+    /**
+     * Returns the descriptor values and logo images of the archive.
+     * If an image is not specified or is missing the default one is used instead.
      *
-     * @param fileContent - archive file content
-     * @return Entry map (key name, value content)
-     * @throws IOException if an I/O error occurs
+     * @param archiveFile archive file
+     * @return {@link InspectedArchive}
+     * @throws ArchiveProcessingException if the archive exceeds the inspection limits
+     * @throws IOException                if the file is not a zip archive or an I/O error occurs
      */
-    public Map<String, byte[]> getContentMap(byte[] fileContent) throws IOException {
-        Map<String, byte[]> entryMap = new HashMap<>();
-        byte[] b = new byte[8192];
-        int len;
-        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(fileContent))) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zis.getNextEntry()) != null) {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                while ((len = zis.read(b)) > 0) {
-                    out.write(b, 0, len);
-                }
-                entryMap.put(zipEntry.getName(), out.toByteArray());
-                out.close();
+    public InspectedArchive inspect(Path archiveFile) throws IOException {
+        try (ZipFile zipFile = new ZipFile(archiveFile.toFile())) {
+            ZipEntry descriptorEntry = checkLimits(zipFile);
+            if (descriptorEntry == null) {
+                return new InspectedArchive(null, null, defaultPictureSmall, defaultPictureBig);
+            }
+            byte[] content = readEntry(zipFile, descriptorEntry, MAX_DESCRIPTOR_SIZE);
+            if (content == null) {
+                throw new ArchiveProcessingException("Archive descriptor is too large!", null);
             }
+            Map<String, String> descriptor = parseDescriptor(content);
+            return new InspectedArchive(descriptor.get(APP_NAME_NAME), descriptor.get(APP_PACKAGE_NAME),
+                    getImage(zipFile, descriptor.get(PICTURE_128_NAME), defaultPictureSmall),
+                    getImage(zipFile, descriptor.get(PICTURE_512_NAME), defaultPictureBig));
         }
-        return entryMap;
     }
 
     /**
-     * Returns names for the two logo images specified within the txt file.
-     * Result is a map with property's name as a key (either "picture_128" or "picture_512")
-     * and image's file name as a value.
+     * Returns default image's content for big or small image.
+     * The input parameter (imageName) is name of the image parameter in the txt file.
+     * Default images are read once, the returned content is shared and must not be modified.
      *
-     * @param entryMap - archive entry map
-     * @return logo image name map
-     * @throws IOException if an I/O error occurs
+     * @param imageName {@value #PICTURE_128_NAME} or {@value #PICTURE_512_NAME}
+     * @return default image's content
      */
-    public Map<String, String> getImageNameMap(Map<String, byte[]> entryMap) throws IOException {
-        Map<String, String> imageNameMap = new HashMap<>();
-        imageNameMap.put(PICTURE_128_NAME, null);
-        imageNameMap.put(PICTURE_512_NAME, null);
-
-        for (Map.Entry<String, byte[]> entry : entryMap.entrySet()) {
-
-            // Find .txt file in the archive
-            if (entry.getKey().endsWith(PROPERTIES_FILE_EXTENSION)) {
-
-                // Read the content
-                try (InputStream is = new ByteArrayInputStream(entry.getValue());
-                     BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-
-                        // Search for image properties
-                        if (line.startsWith(PICTURE_128_NAME) || line.startsWith(PICTURE_512_NAME)) {
-
-                            // Put result in the map
-                            String[] imageProperty = line.split(":");
-                            imageNameMap.put(imageProperty[0].trim(), imageProperty[1].trim());
-                        }
-                    }
-                }
-                break;
-            }
-        }
-        return imageNameMap;
+    public byte[] getDefaultImageByName(String imageName) {
+        return PICTURE_128_NAME.equals(imageName) ? defaultPictureSmall : defaultPictureBig;
     }
 
     /**
-     * Returns contents (bytes) for the two logo images within a map (key - image name, value - image content).
-     * Result is based on the image name map and the archive content.
-     * If the image is missing the default one will be used instead.
+     * Checks the entry count, total size and compression ratio stored in the central directory
      *
-     * @param imageNameMap images name map
-     * @param entryMap     archive's content
-     * @return logo images content map
+     * @return the first descriptor entry, or null
      */
-    public Map<String, byte[]> getImageContentMap(Map<String, String> imageNameMap, Map<String, byte[]> entryMap)
-            throws IOException {
-        Map<String, byte[]> imageContentMap = new HashMap<>();
-        for (Map.Entry<String, String> entry : imageNameMap.entrySet()) {
-            byte[] content = entryMap.get(entry.getValue());
-            if (content == null) {
-                content = getDefaultImageByName(entry.getKey());
+    private ZipEntry checkLimits(ZipFile zipFile) {
+        if (zipFile.size() > limits.maxEntries()) {
+            throw new ArchiveProcessingException("Archive has more than " + limits.maxEntries() + " entries!", null);
+        }
+        ZipEntry descriptorEntry = null;
+        long totalSize = 0;
+        long compressedSize = 0;
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry zipEntry = entries.nextElement();
+            totalSize += Math.max(zipEntry.getSize(), 0);
+            compressedSize += Math.max(zipEntry.getCompressedSize(), 0);
+            if (descriptorEntry == null && !zipEntry.isDirectory() &&
+                    zipEntry.getName().endsWith(PROPERTIES_FILE_EXTENSION)) {
+                descriptorEntry = zipEntry;
             }
-            imageContentMap.put(entry.getKey(), content);
         }
-        return imageContentMap;
+        if (totalSize > limits.maxTotalSize()) {
+            throw new ArchiveProcessingException("Archive is larger than " + limits.maxTotalSize() +
+                    " bytes uncompressed!", null);
+        }
+        if (totalSize > MIN_RATIO_CHECK_SIZE && totalSize > limits.maxCompressionRatio() * compressedSize) {
+            throw new ArchiveProcessingException("Archive compression ratio exceeds " +
+                    limits.maxCompressionRatio() + "!", null);
+        }
+        return descriptorEntry;
+    }
+
+    private byte[] getImage(ZipFile zipFile, String imageName, byte[] defaultImage) throws IOException {
+        ZipEntry zipEntry = imageName == null ? null : zipFile.getEntry(imageName);
+        if (zipEntry == null || zipEntry.isDirectory()) {
+            return defaultImage;
+        }
+        byte[] content = readEntry(zipFile, zipEntry, limits.maxImageSize());
+        if (content == null) {
+            throw new ArchiveProcessingException("Image " + imageName + " is larger than " +
+                    limits.maxImageSize() + " bytes!", null);
+        }
+        return content;
     }
 
     /**
-     * Returns validation result for the given archive content.
-     * The archive is valid if it has a {@value #PROPERTIES_FILE_EXTENSION} file
-     * and values for both {@value #APP_NAME_NAME} and {@value #APP_PACKAGE_NAME}
-     * are the same as the values entered on the input form
+     * Reads the entry content, at most maxSize bytes are inflated whatever size the central directory states
      *
-     * @param entryMap       archive entry map
-     * @param appName        application name from the form
-     * @param appArchiveName archive name from the form
-     * @return validation result
-     * @throws IOException if an I/O error occurs
+     * @return entry content, or null if the entry is larger than maxSize
      */
-    public boolean isArchiveValid(Map<String, byte[]> entryMap, String appName, String appArchiveName) throws IOException {
-        boolean hasValidName = false;
-        boolean hasValidArchiveName = false;
-
-        // If the archive is empty
-        if (entryMap.isEmpty()) {
-            return false;
+    private static byte[] readEntry(ZipFile zipFile, ZipEntry zipEntry, int maxSize) throws IOException {
+        try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+            byte[] content = inputStream.readNBytes(maxSize + 1);
+            return content.length > maxSize ? null : content;
         }
+    }
 
-        for (Map.Entry<String, byte[]> entry : entryMap.entrySet()) {
-
-            // Find properties file in the archive
-            if (entry.getKey().endsWith(PROPERTIES_FILE_EXTENSION)) {
-
-                // Read the content
-                try (InputStream is = new ByteArrayInputStream(entry.getValue());
-                     BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-
-                        // Check application's name
-                        if (line.startsWith(APP_NAME_NAME) && appName.equals(line.split(":")[1].trim())) {
-                            hasValidName = true;
-                        }
-
-                        // Check application's archive name
-                        if (line.startsWith(APP_PACKAGE_NAME) &&
-                                appArchiveName.equals(line.split(":")[1].trim())) {
-                            hasValidArchiveName = true;
-                        }
-                    }
-                }
-                break;
+    /**
+     * Parses the descriptor lines ("key: value")
+     */
+    private static Map<String, String> parseDescriptor(byte[] content) {
+        Map<String, String> descriptor = new HashMap<>();
+        for (String line : new String(content, StandardCharsets.UTF_8).split("\\R")) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                descriptor.putIfAbsent(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
             }
         }
-        return hasValidName && hasValidArchiveName;
+        return descriptor;
     }
 
-    /**
-     * Returns default image's content for big or small image.
-     * The input parameter (imageName) is name of the image parameter in the txt file -
-     *
-     * @param imageName {@value #PICTURE_128_NAME} or {@value #PICTURE_512_NAME}
-     * @return default image's content
-     * @throws IOException if an I/O error occurs
-     */
-    public byte[] getDefaultImageByName(String imageName) throws IOException {
-        byte[] content;
-        String fileName = PICTURE_128_NAME.equals(imageName) ? DEFAULT_PICTURE_128 : DEFAULT_PICTURE_512;
-        ClassPathResource resource = new ClassPathResource(fileName);
-        try (InputStream inputStream = resource.getInputStream()) {
-            content = inputStream.readAllBytes();
+    private static byte[] readResource(String fileName) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(fileName).getInputStream()) {
+            return inputStream.readAllBytes();
         }
-        return content;
     }
 }
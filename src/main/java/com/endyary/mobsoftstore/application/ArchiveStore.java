@@ -0,0 +1,61 @@
+package com.endyary.mobsoftstore.application;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Storage of Application's archive content
+ */
+public interface ArchiveStore {
+
+    /**
+     * Stores the archive content for the given application.
+     *
+     * @param applicationId application's ID
+     * @param content       archive content
+     * @throws IOException if an I/O error occurs
+     */
+    void save(long applicationId, InputStream content) throws IOException;
+
+    /**
+     * Returns archive's size in bytes.
+     *
+     * @param applicationId application's ID
+     * @return archive size
+     * @throws IOException if an I/O error occurs
+     */
+    long getSize(long applicationId) throws IOException;
+
+    /**
+     * Returns hex encoded SHA-256 hash of the archive content.
+     *
+     * @param applicationId application's ID
+     * @return archive hash
+     * @throws IOException if an I/O error occurs
+     */
+    String getHash(long applicationId) throws IOException;
+
+    /**
+     * Transfers the given part of the archive content to the target channel.
+     *
+     * @param applicationId application's ID
+     * @param position      zero based position of the first byte
+     * @param length        number of bytes to transfer, or -1 to transfer until the end
+     * @param target        target channel
+     * @throws IOException if an I/O error occurs
+     */
+    void transferTo(long applicationId, long position, long length, WritableByteChannel target) throws IOException;
+
+    /**
+     * Returns the file holding the archive, if the archive is kept in the file system.
+     *
+     * @param applicationId application's ID
+     * @return Optional archive file path
+     */
+    default Optional<Path> getPath(long applicationId) {
+        return Optional.empty();
+    }
+}
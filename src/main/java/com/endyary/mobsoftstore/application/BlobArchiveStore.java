@@ -0,0 +1,150 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Blob;
+import java.util.List;
+
+/**
+ * {@link ArchiveStore} keeping archives in the DB.
+ * Archives are stored as shared blobs by {@link BlobRepository}, so identical archives are kept once.
+ * Archives of the applications not migrated yet are read from the archive column of the applications table.
+ * The content is read and written directly through JDBC,
+ * so it is streamed instead of being loaded with the entity.
+ */
+public class BlobArchiveStore implements ArchiveStore {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Joins the blob holding the archive of an application which is neither in the archive column nor in a file
+     */
+    private static final String ARCHIVE_BLOB_JOIN = "LEFT JOIN blobs b ON b.hash = a.archiveHash " +
+            "AND a.archive IS NULL AND a.archivePath IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlobRepository blobRepository;
+
+    public BlobArchiveStore(JdbcTemplate jdbcTemplate, BlobRepository blobRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobRepository = blobRepository;
+    }
+
+    @Override
+    public void save(long applicationId, InputStream content) {
+        List<String> previousHashes = jdbcTemplate.queryForList("SELECT b.hash FROM applications a " +
+                "JOIN blobs b ON b.hash = a.archiveHash WHERE a.id = ? AND a.archive IS NULL " +
+                "AND a.archivePath IS NULL", String.class, applicationId);
+        String hash = blobRepository.put(content);
+        jdbcTemplate.update("UPDATE applications SET archiveHash = ?, archive = NULL, archivePath = NULL " +
+                "WHERE id = ?", hash, applicationId);
+        previousHashes.forEach(blobRepository::release);
+    }
+
+    @Override
+    public long getSize(long applicationId) {
+        try {
+            Long size = jdbcTemplate.queryForObject("SELECT COALESCE(OCTET_LENGTH(a.archive), b.size) " +
+                    "FROM applications a " + ARCHIVE_BLOB_JOIN + " WHERE a.id = ?", Long.class, applicationId);
+            return size == null ? 0 : size;
+        } catch (EmptyResultDataAccessException e) {
+            throw new RuntimeException("No Application found with id = " + applicationId, e);
+        }
+    }
+
+    /**
+     * Returns hex encoded SHA-256 hash of the archive content.
+     * The hash is calculated (and stored) on the first call for the archives inserted without it.
+     *
+     * @param applicationId application's ID
+     * @return archive hash
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public String getHash(long applicationId) throws IOException {
+        String hash = jdbcTemplate.queryForObject("SELECT archiveHash FROM applications WHERE id = ?",
+                String.class, applicationId);
+        if (hash == null) {
+            MessageDigest digest = ContentHash.newDigest();
+            try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                copyTo(applicationId, 0, -1, out);
+            }
+            hash = ContentHash.toHex(digest);
+            jdbcTemplate.update("UPDATE applications SET archiveHash = ? WHERE id = ?", hash, applicationId);
+        }
+        return hash;
+    }
+
+    @Override
+    public void transferTo(long applicationId, long position, long length, WritableByteChannel target)
+            throws IOException {
+        copyTo(applicationId, position, length, Channels.newOutputStream(target));
+    }
+
+    /**
+     * Copies the given part of the archive content to the output stream in fixed-size chunks,
+     * reading the column as a JDBC {@link Blob}.
+     *
+     * @param applicationId application's ID
+     * @param position      zero based position of the first byte
+     * @param length        number of bytes to copy, or -1 to copy until the end
+     * @param out           target stream
+     * @throws IOException if an I/O error occurs
+     */
+    public void copyTo(long applicationId, long position, long length, OutputStream out) throws IOException {
+        try {
+            jdbcTemplate.query("SELECT COALESCE(a.archive, b.content) FROM applications a " +
+                    ARCHIVE_BLOB_JOIN + " WHERE a.id = ?", rs -> {
+                if (!rs.next()) {
+                    throw new EmptyResultDataAccessException(1);
+                }
+                Blob blob = rs.getBlob(1);
+                if (blob == null) {
+                    return null;
+                }
+                long count = length < 0 ? blob.length() - position : length;
+                try (InputStream is = blob.getBinaryStream(position + 1, count)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int len;
+                    while ((len = is.read(buffer)) > 0) {
+                        out.write(buffer, 0, len);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    blob.free();
+                }
+                return null;
+            }, applicationId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Moves archives still kept in the applications table to the shared blobs, one archive at a time.
+     * The content is copied inside the DB, an archive already stored as a blob just gets another reference.
+     *
+     * @return number of moved archives
+     * @throws IOException if an I/O error occurs
+     */
+    public int migrateFromTable() throws IOException {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM applications WHERE archivePath IS NULL AND archive IS NOT NULL", Long.class);
+        for (Long id : ids) {
+            if (!blobRepository.addReference(getHash(id))) {
+                jdbcTemplate.update("INSERT INTO blobs (hash, content, size, refCount) " +
+                        "SELECT archiveHash, archive, OCTET_LENGTH(archive), 1 FROM applications WHERE id = ?", id);
+            }
+            jdbcTemplate.update("UPDATE applications SET archive = NULL WHERE id = ?", id);
+        }
+        return ids.size();
+    }
+}
@@ -0,0 +1,143 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Content-addressed storage of binary content in the blobs table.
+ * Every content is stored once under its SHA-256 hash together with the number of its references,
+ * so identical images or archives are shared, and a blob is deleted when its last reference is released.
+ */
+@Repository
+public class BlobRepository {
+
+    private static final String STAGING_PREFIX = "staging-";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationCacheEvictor applicationCacheEvictor;
+
+    public BlobRepository(JdbcTemplate jdbcTemplate, ApplicationCacheEvictor applicationCacheEvictor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationCacheEvictor = applicationCacheEvictor;
+    }
+
+    /**
+     * Adds a reference to the given content, the content is stored only if it isn't stored yet
+     *
+     * @param content blob content
+     * @return content hash
+     */
+    public String put(byte[] content) {
+        String hash = ContentHash.of(content);
+        if (!addReference(hash)) {
+            try {
+                jdbcTemplate.update("INSERT INTO blobs (hash, content, size, refCount) VALUES (?, ?, ?, 1)",
+                        hash, content, content.length);
+            } catch (DuplicateKeyException e) {
+                // Stored concurrently
+                addReference(hash);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Adds a reference to the content read from the stream.
+     * The hash isn't known before the content is read, so the content is streamed into a staging row,
+     * which becomes the blob, or is dropped if the same content is stored already.
+     *
+     * @param content blob content stream
+     * @return content hash
+     */
+    public String put(InputStream content) {
+        String stagingKey = STAGING_PREFIX + UUID.randomUUID();
+        MessageDigest digest = ContentHash.newDigest();
+        jdbcTemplate.update("INSERT INTO blobs (hash, content, size, refCount) VALUES (?, ?, 0, 0)", ps -> {
+            ps.setString(1, stagingKey);
+            ps.setBinaryStream(2, new DigestInputStream(content, digest));
+        });
+        String hash = ContentHash.toHex(digest);
+        if (addReference(hash)) {
+            jdbcTemplate.update("DELETE FROM blobs WHERE hash = ?", stagingKey);
+            return hash;
+        }
+        try {
+            jdbcTemplate.update("UPDATE blobs SET hash = ?, size = OCTET_LENGTH(content), refCount = 1 WHERE hash = ?",
+                    hash, stagingKey);
+        } catch (DuplicateKeyException e) {
+            // Stored concurrently
+            jdbcTemplate.update("DELETE FROM blobs WHERE hash = ?", stagingKey);
+            addReference(hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Releases a reference to the blob, the blob is deleted with its last reference
+     *
+     * @param hash content hash
+     */
+    public void release(String hash) {
+        jdbcTemplate.update("UPDATE blobs SET refCount = refCount - 1 WHERE hash = ?", hash);
+        jdbcTemplate.update("DELETE FROM blobs WHERE hash = ? AND refCount <= 0", hash);
+    }
+
+    /**
+     * Returns the number of references to the blob
+     *
+     * @param hash content hash
+     * @return reference count, 0 if the blob doesn't exist
+     */
+    public int getReferenceCount(String hash) {
+        List<Integer> counts = jdbcTemplate.queryForList("SELECT refCount FROM blobs WHERE hash = ?",
+                Integer.class, hash);
+        return counts.isEmpty() ? 0 : counts.get(0);
+    }
+
+    /**
+     * Moves the logo images still kept in the applications table to blobs, one application at a time
+     *
+     * @return number of migrated applications
+     */
+    public int migrateApplicationPictures() {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM applications " +
+                "WHERE pictureSmallHash IS NULL AND pictureSmall IS NOT NULL AND pictureBig IS NOT NULL", Long.class);
+        for (Long id : ids) {
+            byte[][] pictures = jdbcTemplate.queryForObject("SELECT pictureSmall, pictureBig FROM applications " +
+                    "WHERE id = ?", (rs, rowNum) -> new byte[][]{rs.getBytes(1), rs.getBytes(2)}, id);
+            jdbcTemplate.update("UPDATE applications SET pictureSmallHash = ?, pictureBigHash = ?, " +
+                    "pictureSmall = NULL, pictureBig = NULL WHERE id = ?", put(pictures[0]), put(pictures[1]), id);
+        }
+        applicationCacheEvictor.evict(ids);
+        return ids.size();
+    }
+
+    /**
+     * Returns the usage of the blob storage
+     *
+     * @return {@link BlobStorageReport}
+     */
+    public BlobStorageReport getStorageReport() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(SUM(refCount), 0), COALESCE(SUM(size), 0), " +
+                        "COALESCE(SUM(size * refCount), 0) FROM blobs WHERE refCount > 0",
+                (rs, rowNum) -> new BlobStorageReport(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+    }
+
+    /**
+     * Adds a reference to the blob if it is stored already
+     *
+     * @param hash content hash
+     * @return true if the blob exists
+     */
+    public boolean addReference(String hash) {
+        return jdbcTemplate.update("UPDATE blobs SET refCount = refCount + 1 WHERE hash = ?", hash) > 0;
+    }
+}
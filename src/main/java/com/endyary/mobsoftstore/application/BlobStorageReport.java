@@ -0,0 +1,21 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Usage of the content-addressed blob storage
+ *
+ * @param blobCount       number of stored blobs
+ * @param referenceCount  number of references to the blobs
+ * @param storedBytes     size of the stored blobs
+ * @param referencedBytes size of the content as if every reference held its own copy
+ */
+public record BlobStorageReport(long blobCount, long referenceCount, long storedBytes, long referencedBytes) {
+
+    /**
+     * Returns the number of bytes not stored thanks to the shared blobs
+     *
+     * @return saved bytes
+     */
+    public long savedBytes() {
+        return referencedBytes - storedBytes;
+    }
+}
@@ -0,0 +1,49 @@
+package com.endyary.mobsoftstore.application;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Helper class - calculates SHA-256 content hashes used to identify stored content
+ */
+public final class ContentHash {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private ContentHash() {
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return {@link MessageDigest} instance
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns hex encoded hash of the given digest.
+     *
+     * @param digest updated digest
+     * @return hex encoded hash
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns hex encoded SHA-256 hash of the given content.
+     *
+     * @param content content to hash
+     * @return hex encoded hash
+     */
+    public static String of(byte[] content) {
+        return HexFormat.of().formatHex(newDigest().digest(content));
+    }
+}
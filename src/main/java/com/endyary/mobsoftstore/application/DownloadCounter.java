@@ -0,0 +1,89 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind download counters.
+ * Downloads are counted in memory per application and periodically added to the DB in one batch,
+ * so a download never costs an entity update. The updated applications are evicted from the second-level cache.
+ */
+@Component
+public class DownloadCounter implements DisposableBean {
+
+    private final Map<Long, LongAdder> pendingCounts = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationCacheEvictor applicationCacheEvictor;
+
+    public DownloadCounter(JdbcTemplate jdbcTemplate, ApplicationCacheEvictor applicationCacheEvictor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationCacheEvictor = applicationCacheEvictor;
+    }
+
+    /**
+     * Counts one download of the given application
+     *
+     * @param applicationId application's ID
+     */
+    public void increment(long applicationId) {
+        pendingCounts.computeIfAbsent(applicationId, id -> new LongAdder()).increment();
+    }
+
+    /**
+     * Returns the number of downloads not yet written to the DB
+     *
+     * @param applicationId application's ID
+     * @return pending download count
+     */
+    public long getPending(long applicationId) {
+        LongAdder adder = pendingCounts.get(applicationId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Adds the pending counts to the DB in a single batch.
+     * Counts of a failed batch are put back, so they are written by the next flush.
+     *
+     * @return number of updated applications
+     */
+    @Scheduled(fixedDelayString = "${download.counter.flush-interval:5000}")
+    public int flush() {
+        List<Object[]> batch = new ArrayList<>();
+        pendingCounts.forEach((id, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                batch.add(new Object[]{count, id});
+            }
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate("UPDATE applications SET downloadCount = downloadCount + ? WHERE id = ?", batch);
+        } catch (RuntimeException e) {
+            batch.forEach(row -> pendingCounts.get((Long) row[1]).add((Long) row[0]));
+            throw e;
+        }
+        applicationCacheEvictor.evict(batch.stream().map(row -> (Long) row[1]).toList());
+        return batch.size();
+    }
+
+    /**
+     * Writes the pending counts on shutdown
+     */
+    @Override
+    public void destroy() {
+        flush();
+    }
+}
@@ -0,0 +1,172 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory ranking of applications by download count.
+ * It is seeded once from the DB and updated in O(log n) on every download,
+ * so the most downloaded applications (overall or per category) are known without querying the DB.
+ */
+@Component
+public class DownloadLeaderboard {
+
+    /**
+     * Size of the top list whose changes are published as {@link TopDownloadsChangedEvent}
+     */
+    public static final int TOP_SIZE = 5;
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::downloadCount).reversed()
+            .thenComparingLong(Entry::applicationId);
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    private final NavigableSet<Entry> ranking = new TreeSet<>(RANKING);
+
+    private final Map<Category, NavigableSet<Entry>> categoryRankings = new EnumMap<>(Category.class);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private List<Long> top = List.of();
+
+    private long version;
+
+    public DownloadLeaderboard(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        for (Category category : Category.values()) {
+            categoryRankings.put(category, new TreeSet<>(RANKING));
+        }
+        jdbcTemplate.query("SELECT id, category, downloadCount FROM applications", rs -> {
+            Entry entry = new Entry(rs.getLong(1), Category.valueOf(rs.getString(2)), rs.getLong(3));
+            entries.put(entry.applicationId(), entry);
+            ranking.add(entry);
+            categoryRankings.get(entry.category()).add(entry);
+        });
+        top = getTop(TOP_SIZE);
+    }
+
+    /**
+     * Adds a new application to the leaderboard
+     *
+     * @param applicationId application's ID
+     * @param category      application's category
+     * @param downloadCount current download count
+     */
+    public void add(long applicationId, Category category, long downloadCount) {
+        TopDownloadsChangedEvent event;
+        synchronized (this) {
+            Entry previous = entries.get(applicationId);
+            if (previous != null) {
+                remove(previous);
+            }
+            put(new Entry(applicationId, category, downloadCount));
+            event = checkTopChanged();
+        }
+        publish(event);
+    }
+
+    /**
+     * Counts one download of the given application
+     *
+     * @param applicationId application's ID
+     */
+    public void increment(long applicationId) {
+        TopDownloadsChangedEvent event;
+        synchronized (this) {
+            Entry previous = entries.get(applicationId);
+            if (previous == null) {
+                return;
+            }
+            remove(previous);
+            put(new Entry(applicationId, previous.category(), previous.downloadCount() + 1));
+            event = checkTopChanged();
+        }
+        publish(event);
+    }
+
+    /**
+     * Returns IDs of the most downloaded applications, most downloaded first
+     *
+     * @param count maximum number of IDs
+     * @return The result list
+     */
+    public synchronized List<Long> getTop(int count) {
+        return getTop(ranking, count);
+    }
+
+    /**
+     * Returns IDs of the most downloaded applications in the given category, most downloaded first
+     *
+     * @param category application's category
+     * @param count    maximum number of IDs
+     * @return The result list
+     */
+    public synchronized List<Long> getTop(Category category, int count) {
+        return getTop(categoryRankings.get(category), count);
+    }
+
+    /**
+     * Returns the download count known to the leaderboard
+     *
+     * @param applicationId application's ID
+     * @return download count, 0 for unknown applications
+     */
+    public synchronized long getDownloadCount(long applicationId) {
+        Entry entry = entries.get(applicationId);
+        return entry == null ? 0 : entry.downloadCount();
+    }
+
+    /**
+     * Returns the version of the top list, increased on every change of the top {@value #TOP_SIZE} applications
+     *
+     * @return top list version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.applicationId(), entry);
+        ranking.add(entry);
+        categoryRankings.get(entry.category()).add(entry);
+    }
+
+    private void remove(Entry entry) {
+        ranking.remove(entry);
+        categoryRankings.get(entry.category()).remove(entry);
+    }
+
+    /**
+     * Compares the current top list with the previous one and returns the event to publish if it changed
+     */
+    private TopDownloadsChangedEvent checkTopChanged() {
+        List<Long> currentTop = getTop(TOP_SIZE);
+        if (currentTop.equals(top)) {
+            return null;
+        }
+        top = currentTop;
+        version++;
+        return new TopDownloadsChangedEvent(version, currentTop);
+    }
+
+    private void publish(TopDownloadsChangedEvent event) {
+        if (event != null) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    private static List<Long> getTop(NavigableSet<Entry> entrySet, int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, entrySet.size()));
+        Iterator<Entry> iterator = entrySet.iterator();
+        while (iterator.hasNext() && result.size() < count) {
+            result.add(iterator.next().applicationId());
+        }
+        return result;
+    }
+
+    private record Entry(long applicationId, Category category, long downloadCount) {
+    }
+}
@@ -0,0 +1,266 @@
+package com.endyary.mobsoftstore.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link ArchiveStore} keeping archives as files under the configured directory.
+ * Files are named by their content hash and only the relative path and hash are kept in the applications table,
+ * so applications with the same archive share one file. Like a blob, a file is deleted when it's released
+ * by its last application - the rows pointing to it are its references, together with the saves in progress.
+ * A save releases the replaced file after its transaction commits, or its own file after a rollback.
+ * Archives not moved from the table yet are served by the fallback {@link BlobArchiveStore}.
+ */
+public class FileSystemArchiveStore implements ArchiveStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemArchiveStore.class);
+
+    private static final String ARCHIVE_EXTENSION = ".zip";
+
+    private final Path directory;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlobArchiveStore fallbackStore;
+
+    /**
+     * Number of the saves in progress per file, their references aren't visible in the DB until they commit.
+     * Guarded by itself, like the moves and the deletions of the files.
+     */
+    private final Map<String, Integer> pendingSaves = new HashMap<>();
+
+    public FileSystemArchiveStore(Path directory, JdbcTemplate jdbcTemplate, BlobArchiveStore fallbackStore)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallbackStore = fallbackStore;
+    }
+
+    @Override
+    public void save(long applicationId, InputStream content) throws IOException {
+        store(applicationId, content::transferTo);
+    }
+
+    @Override
+    public long getSize(long applicationId) throws IOException {
+        Optional<Path> path = getPath(applicationId);
+        return path.isPresent() ? Files.size(path.get()) : fallbackStore.getSize(applicationId);
+    }
+
+    @Override
+    public String getHash(long applicationId) throws IOException {
+        return fallbackStore.getHash(applicationId);
+    }
+
+    /**
+     * Transfers the file content with {@link FileChannel#transferTo}. The OS copies the data directly only
+     * to a file or socket channel, other channels (e.g. a wrapped servlet stream) get it through a buffer.
+     */
+    @Override
+    public void transferTo(long applicationId, long position, long length, WritableByteChannel target)
+            throws IOException {
+        Optional<Path> path = getPath(applicationId);
+        if (path.isEmpty()) {
+            fallbackStore.transferTo(applicationId, position, length, target);
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(path.get(), StandardOpenOption.READ)) {
+            long current = position;
+            long end = length < 0 ? fileChannel.size() : position + length;
+            while (current < end) {
+                long transferred = fileChannel.transferTo(current, end - current, target);
+                if (transferred <= 0) {
+                    throw new EOFException("Archive file is shorter than expected: " + path.get());
+                }
+                current += transferred;
+            }
+        }
+    }
+
+    @Override
+    public Optional<Path> getPath(long applicationId) {
+        List<String> paths = jdbcTemplate.queryForList("SELECT archivePath FROM applications WHERE id = ?",
+                String.class, applicationId);
+        if (paths.isEmpty() || paths.get(0) == null) {
+            return Optional.empty();
+        }
+        return Optional.of(directory.resolve(paths.get(0)));
+    }
+
+    /**
+     * Returns the files recorded in the applications table which don't exist in the directory
+     *
+     * @return paths of the missing files
+     */
+    public List<Path> findMissingFiles() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT archivePath FROM applications WHERE archivePath IS NOT NULL",
+                String.class).stream().map(directory::resolve).filter(path -> !Files.isRegularFile(path)).toList();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Moves archives still kept in the applications table to the file system, one archive at a time.
+     *
+     * @return number of moved archives
+     * @throws IOException if an I/O error occurs
+     */
+    public int migrateFromTable() throws IOException {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM applications WHERE archivePath IS NULL AND archive IS NOT NULL", Long.class);
+        for (Long id : ids) {
+            store(id, out -> fallbackStore.copyTo(id, 0, -1, out));
+        }
+        return ids.size();
+    }
+
+    /**
+     * Deletes the files no application points to, e.g. left by a crash before a release,
+     * together with the temporary files of interrupted saves. Meant to run on startup, before any save.
+     *
+     * @return number of deleted files
+     * @throws IOException if an I/O error occurs
+     */
+    public int removeUnreferencedFiles() throws IOException {
+        Set<String> referencedPaths = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT archivePath FROM applications WHERE archivePath IS NOT NULL", String.class));
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            files = paths.filter(Files::isRegularFile).filter(path -> !referencedPaths.contains(
+                    directory.relativize(path).toString().replace(File.separatorChar, '/'))).toList();
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+        return files.size();
+    }
+
+    /**
+     * Writes the archive file and points the application to it. The file replaced by it is released
+     * after the commit of the current transaction, the written one after a rollback (immediately without one).
+     */
+    private void store(long applicationId, ContentWriter writer) throws IOException {
+        List<String> previousPaths = jdbcTemplate.queryForList(
+                "SELECT archivePath FROM applications WHERE id = ? AND archivePath IS NOT NULL",
+                String.class, applicationId);
+        String hash = writeFile(writer);
+        String path = getRelativePath(hash);
+        try {
+            setLocation(applicationId, hash);
+        } catch (RuntimeException e) {
+            complete(hash, List.of(path));
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(hash, status == STATUS_COMMITTED ? previousPaths : List.of(path));
+                }
+            });
+        } else {
+            complete(hash, previousPaths);
+        }
+    }
+
+    /**
+     * Ends the save of the file with the given hash and releases the given files
+     */
+    private void complete(String hash, List<String> releasedPaths) {
+        synchronized (pendingSaves) {
+            pendingSaves.computeIfPresent(hash, (key, count) -> count > 1 ? count - 1 : null);
+            releasedPaths.forEach(this::release);
+        }
+    }
+
+    /**
+     * Deletes the file if neither an application nor a save in progress refers to it any more
+     */
+    private void release(String relativePath) {
+        String hash = relativePath.substring(relativePath.lastIndexOf('/') + 1,
+                relativePath.length() - ARCHIVE_EXTENSION.length());
+        Integer references = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM applications WHERE archivePath = ?",
+                Integer.class, relativePath);
+        if (pendingSaves.containsKey(hash) || (references != null && references > 0)) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(relativePath));
+        } catch (IOException e) {
+            logger.warn("Archive file {} can't be deleted", relativePath, e);
+        }
+    }
+
+    /**
+     * Writes the content to a temporary file and atomically moves it to its final, hash based location.
+     * An existing file with the same hash already holds the same content, so it is reused.
+     * The save is counted as pending until it's completed.
+     *
+     * @param writer writes the archive content to the given stream
+     * @return content hash
+     * @throws IOException if an I/O error occurs
+     */
+    private String writeFile(ContentWriter writer) throws IOException {
+        Path tempFile = Files.createTempFile(directory, "upload", ".tmp");
+        try {
+            MessageDigest digest = ContentHash.newDigest();
+            try (FileOutputStream fos = new FileOutputStream(tempFile.toFile());
+                 OutputStream out = new DigestOutputStream(fos, digest)) {
+                writer.write(out);
+                out.flush();
+                fos.getChannel().force(true);
+            }
+            String hash = ContentHash.toHex(digest);
+            Path target = directory.resolve(getRelativePath(hash));
+            synchronized (pendingSaves) {
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                pendingSaves.merge(hash, 1, Integer::sum);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Points the application to the stored file and releases the archive column
+     */
+    private void setLocation(long applicationId, String hash) {
+        jdbcTemplate.update("UPDATE applications SET archivePath = ?, archiveHash = ?, archive = NULL WHERE id = ?",
+                getRelativePath(hash), hash, applicationId);
+    }
+
+    private String getRelativePath(String hash) {
+        return hash.substring(0, 2) + "/" + hash + ARCHIVE_EXTENSION;
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
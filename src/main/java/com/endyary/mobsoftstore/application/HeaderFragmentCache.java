@@ -0,0 +1,151 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JavaxServletWebApplication;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the rendered header fragment (navigation and the logos of the most downloaded applications).
+ * The header depends only on the authentication state, the authorities and the top list,
+ * so it is rendered once per such combination. The per-request values - the user name and the search query -
+ * are rendered as markers and spliced into the cached markup.
+ * Entries of older top lists are dropped when the top list changes.
+ */
+@Component
+public class HeaderFragmentCache {
+
+    public static final String TEMPLATE = "fragments/header";
+
+    public static final String FRAGMENT = "header";
+
+    /**
+     * Model attribute holding the rendered header, the layout renders the fragment itself without it
+     */
+    public static final String MODEL_ATTRIBUTE = "header";
+
+    private final String userNameMarker = "header-user-" + UUID.randomUUID();
+
+    private final String queryMarker = "header-query-" + UUID.randomUUID();
+
+    private final Map<Key, String> fragments = new ConcurrentHashMap<>();
+
+    private final ITemplateEngine templateEngine;
+
+    private final DownloadLeaderboard downloadLeaderboard;
+
+    private final ApplicationService applicationService;
+
+    private final AuthenticationTrustResolver authenticationTrustResolver = new AuthenticationTrustResolverImpl();
+
+    public HeaderFragmentCache(ITemplateEngine templateEngine, DownloadLeaderboard downloadLeaderboard,
+                               ApplicationService applicationService) {
+        this.templateEngine = templateEngine;
+        this.downloadLeaderboard = downloadLeaderboard;
+        this.applicationService = applicationService;
+    }
+
+    /**
+     * Returns the header markup for the current user
+     *
+     * @param request  the current request
+     * @param response the current response
+     * @param query    search query shown in the search box, or null
+     * @return rendered header fragment
+     */
+    public String getHeader(HttpServletRequest request, HttpServletResponse response, String query) {
+        Authentication authentication = getAuthentication();
+        boolean authenticated = authentication != null;
+
+        // The top list matches the version only if the version didn't change meanwhile
+        long version = downloadLeaderboard.getVersion();
+        List<Long> top = downloadLeaderboard.getTop(DownloadLeaderboard.TOP_SIZE);
+        Key key = new Key(authenticated, getAuthorities(authentication), request.getContextPath(), version);
+        String fragment = fragments.get(key);
+        if (fragment == null) {
+            fragment = render(request, response, top);
+            if (version == downloadLeaderboard.getVersion()) {
+                fragments.put(key, fragment);
+            }
+        }
+
+        String userName = authenticated ? HtmlUtils.htmlEscape(authentication.getName()) : "";
+        return fragment.replace(userNameMarker, userName)
+                .replace(queryMarker, query == null ? "" : HtmlUtils.htmlEscape(query));
+    }
+
+    /**
+     * Returns a tag of the header shown to the current user, which changes whenever the header changes
+     *
+     * @return header tag
+     */
+    public String getTag() {
+        Authentication authentication = getAuthentication();
+        return (authentication == null ? "" : authentication.getName()) + "/" + getAuthorities(authentication)
+                + "/" + downloadLeaderboard.getVersion();
+    }
+
+    /**
+     * Drops the fragments showing an older top list
+     *
+     * @param event top downloads change event
+     */
+    @EventListener
+    public void onTopDownloadsChanged(TopDownloadsChangedEvent event) {
+        fragments.keySet().removeIf(key -> key.version() < event.version());
+    }
+
+    /**
+     * Returns the current authentication, null for an anonymous user
+     */
+    private Authentication getAuthentication() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean authenticated = authentication != null && authentication.isAuthenticated()
+                && !authenticationTrustResolver.isAnonymous(authentication);
+        return authenticated ? authentication : null;
+    }
+
+    private static List<String> getAuthorities(Authentication authentication) {
+        return authentication == null ? List.of() : authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).sorted().toList();
+    }
+
+    /**
+     * Renders the header with markers in place of the per-request values.
+     * Links are not encoded with the session ID, which must not be shared by the cached markup.
+     */
+    private String render(HttpServletRequest request, HttpServletResponse response, List<Long> top) {
+        HttpServletResponse sharedResponse = new HttpServletResponseWrapper(response) {
+            @Override
+            public String encodeURL(String url) {
+                return url;
+            }
+        };
+        WebContext context = new WebContext(JavaxServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, sharedResponse), request.getLocale());
+        context.setVariable("topLogos", top.stream()
+                .map(id -> applicationService.getImageUrl(id, ImageProcessor.SMALL_IMAGE_SIZE)).toList());
+        context.setVariable("userName", userNameMarker);
+        context.setVariable("query", queryMarker);
+        return templateEngine.process(TEMPLATE, Set.of(FRAGMENT), context);
+    }
+
+    private record Key(boolean authenticated, List<String> authorities, String contextPath, long version) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Application logo image controller class
+ */
+@Controller
+public class ImageController {
+
+    /**
+     * Logos can't be changed after the upload and application IDs are never reused,
+     * so the images can be cached by the clients for a long time
+     */
+    private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic();
+
+    private final ApplicationService applicationService;
+
+    public ImageController(ApplicationService applicationService) {
+        this.applicationService = applicationService;
+    }
+
+    /**
+     * Returns the raw logo image. Requests with a matching If-None-Match header
+     * are answered with 304 Not Modified by Spring MVC based on the ETag.
+     */
+    @GetMapping("/images/{appId}/{size}")
+    public ResponseEntity<byte[]> getImage(@PathVariable long appId, @PathVariable int size) {
+        Optional<ApplicationImage> image = applicationService.getImage(appId, size);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.get().contentType()))
+                .cacheControl(IMAGE_CACHE_CONTROL)
+                .eTag(image.get().hash())
+                .body(image.get().content());
+    }
+}
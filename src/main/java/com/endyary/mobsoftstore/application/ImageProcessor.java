@@ -0,0 +1,218 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Helper class - generates the logo image variants stored for every application.
+ * Images are decoded with {@code javax.imageio}, checked and re-encoded in every variant size
+ * on a bounded worker pool, so concurrent uploads can't occupy an unbounded number of threads.
+ */
+@Component
+public class ImageProcessor {
+
+    public static final int ICON_IMAGE_SIZE = 64;
+    public static final int SMALL_IMAGE_SIZE = 128;
+    public static final int BIG_IMAGE_SIZE = 512;
+
+    /**
+     * Largest accepted width or height of a source image
+     */
+    public static final int MAX_SOURCE_DIMENSION = 4096;
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private static final long PROCESSING_TIMEOUT_SECONDS = 30;
+
+    private final TaskExecutor imageProcessingExecutor;
+
+    public ImageProcessor(@Qualifier("imageProcessingExecutor") TaskExecutor imageProcessingExecutor) {
+        this.imageProcessingExecutor = imageProcessingExecutor;
+    }
+
+    /**
+     * Creates all image variants - {@value #ICON_IMAGE_SIZE} and {@value #SMALL_IMAGE_SIZE} from the small
+     * source image and {@value #BIG_IMAGE_SIZE} from the big one.
+     *
+     * @param smallImage small source image content
+     * @param bigImage   big source image content
+     * @return map of image variants (key - variant size, value - image)
+     * @throws ArchiveProcessingException if an image is not valid or can't be processed
+     */
+    public Map<Integer, ApplicationImage> createVariants(byte[] smallImage, byte[] bigImage) {
+        Map<Integer, byte[]> sources = new LinkedHashMap<>();
+        sources.put(ICON_IMAGE_SIZE, smallImage);
+        sources.put(SMALL_IMAGE_SIZE, smallImage);
+        sources.put(BIG_IMAGE_SIZE, bigImage);
+
+        Map<Integer, FutureTask<ApplicationImage>> tasks = new LinkedHashMap<>();
+        try {
+            sources.forEach((size, source) -> {
+                FutureTask<ApplicationImage> task = new FutureTask<>(() -> createVariant(source, size));
+                imageProcessingExecutor.execute(task);
+                tasks.put(size, task);
+            });
+        } catch (TaskRejectedException e) {
+            tasks.values().forEach(task -> task.cancel(true));
+            throw new ArchiveProcessingException("Server is busy processing images, please try again later!", null);
+        }
+
+        Map<Integer, ApplicationImage> variants = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Integer, FutureTask<ApplicationImage>> entry : tasks.entrySet()) {
+                variants.put(entry.getKey(), entry.getValue().get(PROCESSING_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ArchiveProcessingException archiveProcessingException) {
+                throw archiveProcessingException;
+            }
+            throw new ArchiveProcessingException("Error while processing the images!", e.getCause());
+        } catch (TimeoutException e) {
+            throw new ArchiveProcessingException("Processing the images took too long!", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ArchiveProcessingException("Error while processing the images!", e);
+        } finally {
+            tasks.values().forEach(task -> task.cancel(true));
+        }
+        return variants;
+    }
+
+    /**
+     * Decodes the source image, checks its dimensions and creates the variant which fits into size x size.
+     * If the source has already the variant dimensions and is smaller than the re-encoded image,
+     * the source content is kept.
+     */
+    private ApplicationImage createVariant(byte[] source, int size) throws IOException {
+        DecodedImage decoded = decode(source);
+        BufferedImage scaled = scale(decoded.image(), size);
+
+        boolean hasAlpha = scaled.getColorModel().hasAlpha();
+        byte[] content = hasAlpha ? encode(scaled, "png") : encode(toRgb(scaled), "jpeg");
+        String contentType = hasAlpha ? MediaType.IMAGE_PNG_VALUE : MediaType.IMAGE_JPEG_VALUE;
+
+        String sourceType = switch (decoded.formatName().toLowerCase()) {
+            case "png" -> MediaType.IMAGE_PNG_VALUE;
+            case "jpeg", "jpg" -> MediaType.IMAGE_JPEG_VALUE;
+            default -> null;
+        };
+        if (scaled == decoded.image() && sourceType != null && source.length <= content.length) {
+            return new ApplicationImage(source, sourceType, ContentHash.of(source));
+        }
+        return new ApplicationImage(content, contentType, ContentHash.of(content));
+    }
+
+    /**
+     * Decodes the image after checking its dimensions,
+     * so huge images are rejected before their pixels are allocated
+     */
+    private DecodedImage decode(byte[] source) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new ArchiveProcessingException("Logo image format is not supported!", null);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width < 1 || height < 1 || width > MAX_SOURCE_DIMENSION || height > MAX_SOURCE_DIMENSION) {
+                    throw new ArchiveProcessingException(String.format(
+                            "Logo image dimensions %dx%d are not valid!", width, height), null);
+                }
+                return new DecodedImage(reader.read(0), reader.getFormatName());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales the image to fit into size x size, halving it step by step for a better quality
+     */
+    private BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min((double) size / image.getWidth(), (double) size / image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        if (targetWidth == image.getWidth() && targetHeight == image.getHeight()) {
+            return image;
+        }
+
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width > targetWidth ? width / 2 : targetWidth);
+            height = Math.max(targetHeight, height > targetHeight ? height / 2 : targetHeight);
+
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed() && "jpeg".equals(format)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the image as RGB image which can be encoded as JPEG (e.g. indexed PNG images can't)
+     */
+    private BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+        BufferedImage rgbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgbImage.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rgbImage;
+    }
+
+    /**
+     * Returns all variant sizes
+     *
+     * @return The result list
+     */
+    public static List<Integer> getVariantSizes() {
+        return List.of(ICON_IMAGE_SIZE, SMALL_IMAGE_SIZE, BIG_IMAGE_SIZE);
+    }
+
+    private record DecodedImage(BufferedImage image, String formatName) {
+    }
+}
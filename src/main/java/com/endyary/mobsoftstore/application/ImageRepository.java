@@ -0,0 +1,88 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads and writes Application's logo image variants directly through JDBC, without loading the entity.
+ * The content of a variant is kept in the shared blobs, the variant row holds a reference to it.
+ */
+@Repository
+public class ImageRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlobRepository blobRepository;
+
+    public ImageRepository(JdbcTemplate jdbcTemplate, BlobRepository blobRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobRepository = blobRepository;
+    }
+
+    /**
+     * Returns the logo image variant of the given size.
+     *
+     * @param applicationId application's ID
+     * @param size          variant size
+     * @return Optional image, empty if the application or the variant doesn't exist
+     */
+    public Optional<ApplicationImage> findImage(long applicationId, int size) {
+        List<ApplicationImage> images = jdbcTemplate.query(
+                "SELECT b.content, i.contentType, i.hash FROM application_images i " +
+                        "JOIN blobs b ON b.hash = i.hash WHERE i.application_id = ? AND i.size = ?",
+                (rs, rowNum) -> new ApplicationImage(rs.getBytes(1), rs.getString(2), rs.getString(3)),
+                applicationId, size);
+        return images.stream().findFirst();
+    }
+
+    /**
+     * Stores the image variants of the given application, replacing the existing ones.
+     * The variants are added to the shared blobs before the blobs of the replaced ones are released,
+     * so a content kept by the new variants isn't deleted in between.
+     *
+     * @param applicationId application's ID
+     * @param images        map of image variants (key - variant size, value - image)
+     */
+    public void saveImages(long applicationId, Map<Integer, ApplicationImage> images) {
+        List<String> releasedHashes = jdbcTemplate.queryForList(
+                "SELECT hash FROM application_images WHERE application_id = ?", String.class, applicationId);
+        jdbcTemplate.update("DELETE FROM application_images WHERE application_id = ?", applicationId);
+        List<Object[]> batch = new ArrayList<>();
+        images.forEach((size, image) ->
+                batch.add(new Object[]{applicationId, size, image.contentType(), blobRepository.put(image.content())}));
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO application_images (application_id, size, contentType, hash) VALUES (?, ?, ?, ?)",
+                batch);
+        releasedHashes.forEach(blobRepository::release);
+    }
+
+    /**
+     * Returns IDs of the applications which have no image variants yet.
+     *
+     * @return The result list
+     */
+    public List<Long> findApplicationIdsWithoutImages() {
+        return jdbcTemplate.queryForList("SELECT a.id FROM applications a WHERE NOT EXISTS " +
+                "(SELECT 1 FROM application_images i WHERE i.application_id = a.id)", Long.class);
+    }
+
+    /**
+     * Returns the original (uploaded) small and big logo images of the application.
+     * The images are read from the shared blobs, or from the legacy columns of a row not migrated yet.
+     *
+     * @param applicationId application's ID
+     * @return array with the small and the big image content
+     */
+    public byte[][] findSourceImages(long applicationId) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(s.content, a.pictureSmall), " +
+                        "COALESCE(b.content, a.pictureBig) FROM applications a " +
+                        "LEFT JOIN blobs s ON s.hash = a.pictureSmallHash " +
+                        "LEFT JOIN blobs b ON b.hash = a.pictureBigHash WHERE a.id = ?",
+                (rs, rowNum) -> new byte[][]{rs.getBytes(1), rs.getBytes(2)}, applicationId);
+    }
+}
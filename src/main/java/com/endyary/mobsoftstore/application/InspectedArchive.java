@@ -0,0 +1,26 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Result of an archive inspection - values of the archive's descriptor and the two logo images
+ * (the default ones when the archive doesn't have them)
+ *
+ * @param name         application name from the descriptor, or null
+ * @param packageName  archive name from the descriptor, or null
+ * @param pictureSmall small logo image content
+ * @param pictureBig   big logo image content
+ */
+public record InspectedArchive(String name, String packageName, byte[] pictureSmall, byte[] pictureBig) {
+
+    /**
+     * Returns validation result for the values entered on the input form.
+     * The archive is valid if its descriptor has both the name and the package
+     * and they are the same as the values entered on the form.
+     *
+     * @param appName        application name from the form
+     * @param appArchiveName archive name from the form
+     * @return validation result
+     */
+    public boolean matches(String appName, String appArchiveName) {
+        return name != null && name.equals(appName) && packageName != null && packageName.equals(appArchiveName);
+    }
+}
@@ -0,0 +1,44 @@
+package com.endyary.mobsoftstore.application;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the application listing - sort key and ID of the row next to which a page starts.
+ * It is passed to the client as an opaque URL safe string.
+ *
+ * @param key sort key
+ * @param id  application's ID
+ */
+public record PageCursor(Object key, long id) {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * Encodes the cursor as URL safe string
+     *
+     * @return encoded cursor
+     */
+    public String encode() {
+        String value = id + String.valueOf(SEPARATOR) + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created with {@link #encode()}
+     *
+     * @param cursor encoded cursor
+     * @param sort   sort order of the listing the cursor was created for
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static PageCursor decode(String cursor, ApplicationSort sort) {
+        String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = value.indexOf(SEPARATOR);
+        if (separator < 1) {
+            throw new IllegalArgumentException(String.format("Cursor %s is not valid!", cursor));
+        }
+        return new PageCursor(sort.parseKey(value.substring(separator + 1)),
+                Long.parseLong(value.substring(0, separator)));
+    }
+}
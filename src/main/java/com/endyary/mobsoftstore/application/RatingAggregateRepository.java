@@ -0,0 +1,116 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the rating aggregates (sum, count and histogram) denormalized into the applications table.
+ * They are changed with relative updates, so concurrent ratings of the same application don't overwrite each other.
+ * Every change bumps the application's version (see {@link ApplicationVersionRepository})
+ * and evicts the application from the second-level cache.
+ */
+@Repository
+public class RatingAggregateRepository {
+
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+
+    private static final String AGGREGATE_COLUMNS =
+            "ratingSum, ratingCount, rating1Count, rating2Count, rating3Count, rating4Count, rating5Count";
+
+    private static final String ACTUAL_AGGREGATES = "COALESCE(SUM(r.rating), 0), COUNT(r.id), " +
+            "COUNT(CASE WHEN r.rating = 1 THEN 1 END), COUNT(CASE WHEN r.rating = 2 THEN 1 END), " +
+            "COUNT(CASE WHEN r.rating = 3 THEN 1 END), COUNT(CASE WHEN r.rating = 4 THEN 1 END), " +
+            "COUNT(CASE WHEN r.rating = 5 THEN 1 END)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ApplicationCacheEvictor applicationCacheEvictor;
+
+    public RatingAggregateRepository(JdbcTemplate jdbcTemplate, ApplicationCacheEvictor applicationCacheEvictor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.applicationCacheEvictor = applicationCacheEvictor;
+    }
+
+    /**
+     * Adds a new rating to the aggregates or replaces the previous rating of the same user
+     *
+     * @param applicationId  application's ID
+     * @param previousRating replaced rating value, null for a new rating
+     * @param rating         new rating value
+     */
+    public void applyRating(long applicationId, Integer previousRating, int rating) {
+        int[] histogramDelta = new int[MAX_RATING];
+        histogramDelta[rating - MIN_RATING]++;
+        if (previousRating != null) {
+            histogramDelta[previousRating - MIN_RATING]--;
+        }
+        long sumDelta = rating - (previousRating == null ? 0 : previousRating);
+        int countDelta = previousRating == null ? 1 : 0;
+
+        jdbcTemplate.update("UPDATE applications SET ratingSum = ratingSum + ?, ratingCount = ratingCount + ?, " +
+                        "rating1Count = rating1Count + ?, rating2Count = rating2Count + ?, " +
+                        "rating3Count = rating3Count + ?, rating4Count = rating4Count + ?, " +
+                        "rating5Count = rating5Count + ?, " + ApplicationVersionRepository.INCREMENT +
+                        " WHERE id = ?",
+                sumDelta, countDelta, histogramDelta[0], histogramDelta[1], histogramDelta[2],
+                histogramDelta[3], histogramDelta[4], applicationId);
+        applicationCacheEvictor.evict(applicationId);
+    }
+
+    /**
+     * Returns the stored rating aggregates of the application
+     *
+     * @param applicationId application's ID
+     * @return {@link RatingAggregates}
+     */
+    public RatingAggregates findAggregates(long applicationId) {
+        return jdbcTemplate.queryForObject("SELECT " + AGGREGATE_COLUMNS + " FROM applications WHERE id = ?",
+                (rs, rowNum) -> readAggregates(rs, 1), applicationId);
+    }
+
+    /**
+     * Computes the aggregates of all applications from the ratings table
+     * and returns the ones which differ from the stored aggregates.
+     *
+     * @return The result list
+     */
+    public List<RatingDrift> findDrift() {
+        List<RatingDrift> drift = new ArrayList<>();
+        jdbcTemplate.query("SELECT a.id, a.ratingSum, a.ratingCount, a.rating1Count, a.rating2Count, " +
+                "a.rating3Count, a.rating4Count, a.rating5Count, " + ACTUAL_AGGREGATES +
+                " FROM applications a LEFT JOIN ratings r ON r.application_id = a.id GROUP BY a.id", rs -> {
+            RatingAggregates stored = readAggregates(rs, 2);
+            RatingAggregates actual = readAggregates(rs, 9);
+            if (!stored.equals(actual)) {
+                drift.add(new RatingDrift(rs.getLong(1), stored, actual));
+            }
+        });
+        return drift;
+    }
+
+    /**
+     * Replaces the stored aggregates of the application with the ones computed from the ratings table
+     *
+     * @param applicationId application's ID
+     */
+    public void recompute(long applicationId) {
+        jdbcTemplate.update("UPDATE applications a SET (" + AGGREGATE_COLUMNS + ") = (SELECT " + ACTUAL_AGGREGATES +
+                " FROM ratings r WHERE r.application_id = a.id), " + ApplicationVersionRepository.INCREMENT +
+                " WHERE a.id = ?", applicationId);
+        applicationCacheEvictor.evict(applicationId);
+    }
+
+    private static RatingAggregates readAggregates(ResultSet rs, int firstColumn) throws SQLException {
+        List<Integer> histogram = new ArrayList<>(MAX_RATING);
+        for (int i = 0; i < MAX_RATING; i++) {
+            histogram.add(rs.getInt(firstColumn + 2 + i));
+        }
+        return new RatingAggregates(rs.getLong(firstColumn), rs.getInt(firstColumn + 1), List.copyOf(histogram));
+    }
+}
@@ -0,0 +1,13 @@
+package com.endyary.mobsoftstore.application;
+
+import java.util.List;
+
+/**
+ * Rating aggregates of one application
+ *
+ * @param sum       sum of all ratings
+ * @param count     number of ratings
+ * @param histogram number of ratings per value, index 0 holds the count of 1 star ratings
+ */
+public record RatingAggregates(long sum, int count, List<Integer> histogram) {
+}
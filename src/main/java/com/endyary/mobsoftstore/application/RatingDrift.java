@@ -0,0 +1,11 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Difference between the rating aggregates stored for an application and the ones computed from its ratings
+ *
+ * @param applicationId application's ID
+ * @param stored        aggregates stored in the applications table
+ * @param actual        aggregates computed from the ratings table
+ */
+public record RatingDrift(long applicationId, RatingAggregates stored, RatingAggregates actual) {
+}
@@ -0,0 +1,41 @@
+package com.endyary.mobsoftstore.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodically recomputes the denormalized rating aggregates from the ratings table,
+ * reports every application whose stored aggregates drifted and corrects them.
+ */
+@Component
+public class RatingReconciliationJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingReconciliationJob.class);
+
+    private final RatingAggregateRepository ratingAggregateRepository;
+
+    public RatingReconciliationJob(RatingAggregateRepository ratingAggregateRepository) {
+        this.ratingAggregateRepository = ratingAggregateRepository;
+    }
+
+    /**
+     * Reconciles the rating aggregates of all applications
+     *
+     * @return drift found (and corrected) by this run
+     */
+    @Scheduled(cron = "${rating.reconciliation.cron:0 0 3 * * *}")
+    public List<RatingDrift> reconcile() {
+        List<RatingDrift> drift = ratingAggregateRepository.findDrift();
+        for (RatingDrift appDrift : drift) {
+            logger.warn("Rating aggregates of the application {} drifted: stored {}, actual {}",
+                    appDrift.applicationId(), appDrift.stored(), appDrift.actual());
+            ratingAggregateRepository.recompute(appDrift.applicationId());
+        }
+        logger.info("Rating aggregates reconciled, {} application(s) corrected", drift.size());
+        return drift;
+    }
+}
@@ -0,0 +1,12 @@
+package com.endyary.mobsoftstore.application;
+
+import java.util.List;
+
+/**
+ * Event published when the set (or order) of the most downloaded applications changes
+ *
+ * @param version        leaderboard version of the new top list
+ * @param applicationIds IDs of the most downloaded applications, most downloaded first
+ */
+public record TopDownloadsChangedEvent(long version, List<Long> applicationIds) {
+}
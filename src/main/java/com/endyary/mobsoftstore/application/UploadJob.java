@@ -0,0 +1,17 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Upload of a new application processed in the background - the form values, the spooled archive and the progress
+ *
+ * @param id            job ID
+ * @param status        current status
+ * @param message       result message, or null while the job is running
+ * @param applicationId ID of the created application, or null
+ * @param request       values entered on the form
+ * @param archiveName   original name of the archive
+ * @param archiveFile   path of the spooled archive file
+ * @param developerId   ID of the uploading developer
+ */
+public record UploadJob(String id, UploadJobStatus status, String message, Long applicationId,
+                        ApplicationRequest request, String archiveName, String archiveFile, long developerId) {
+}
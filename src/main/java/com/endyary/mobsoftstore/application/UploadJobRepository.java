@@ -0,0 +1,89 @@
+package com.endyary.mobsoftstore.application;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the {@link UploadJob}s in the upload_jobs table, so unfinished jobs can be resumed after a restart
+ */
+@Repository
+public class UploadJobRepository {
+
+    private static final String JOB_SELECT = "SELECT id, status, message, application_id, name, category, " +
+            "description, archiveName, archiveFile, developer_id FROM upload_jobs ";
+
+    private static final RowMapper<UploadJob> JOB_MAPPER = (rs, rowNum) -> {
+        ApplicationRequest request = new ApplicationRequest();
+        request.setName(rs.getString("name"));
+        request.setCategory(rs.getString("category"));
+        request.setDescription(rs.getString("description"));
+        return new UploadJob(rs.getString("id"), UploadJobStatus.valueOf(rs.getString("status")),
+                rs.getString("message"), rs.getObject("application_id", Long.class), request,
+                rs.getString("archiveName"), rs.getString("archiveFile"), rs.getLong("developer_id"));
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UploadJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts a new job
+     *
+     * @param job {@link UploadJob}
+     */
+    public void insert(UploadJob job) {
+        jdbcTemplate.update("INSERT INTO upload_jobs (id, status, message, application_id, name, category, " +
+                        "description, archiveName, archiveFile, developer_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                job.id(), job.status().name(), job.message(), job.applicationId(), job.request().getName(),
+                job.request().getCategory(), job.request().getDescription(), job.archiveName(), job.archiveFile(),
+                job.developerId());
+    }
+
+    /**
+     * Updates the job's progress
+     *
+     * @param id            job ID
+     * @param status        new status
+     * @param message       result message, or null
+     * @param applicationId ID of the created application, or null
+     */
+    public void updateStatus(String id, UploadJobStatus status, String message, Long applicationId) {
+        jdbcTemplate.update("UPDATE upload_jobs SET status = ?, message = ?, application_id = ? WHERE id = ?",
+                status.name(), message, applicationId, id);
+    }
+
+    /**
+     * Returns the job with the given ID
+     *
+     * @param id job ID
+     * @return Optional job
+     */
+    public Optional<UploadJob> findById(String id) {
+        return jdbcTemplate.query(JOB_SELECT + "WHERE id = ?", JOB_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Returns the jobs which haven't finished yet, the oldest first
+     *
+     * @return unfinished jobs
+     */
+    public List<UploadJob> findUnfinished() {
+        return jdbcTemplate.query(JOB_SELECT + "WHERE status NOT IN (?, ?) ORDER BY createdDate, id", JOB_MAPPER,
+                UploadJobStatus.DONE.name(), UploadJobStatus.FAILED.name());
+    }
+
+    /**
+     * Deletes the job
+     *
+     * @param id job ID
+     */
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM upload_jobs WHERE id = ?", id);
+    }
+}
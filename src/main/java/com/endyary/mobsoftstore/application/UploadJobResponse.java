@@ -0,0 +1,12 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Upload job status returned by the status endpoint
+ *
+ * @param id            job ID
+ * @param status        current status
+ * @param message       result message, or null while the job is running
+ * @param applicationId ID of the created application, or null
+ */
+public record UploadJobResponse(String id, UploadJobStatus status, String message, Long applicationId) {
+}
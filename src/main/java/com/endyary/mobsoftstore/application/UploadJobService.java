@@ -0,0 +1,191 @@
+package com.endyary.mobsoftstore.application;
+
+import com.endyary.mobsoftstore.config.DataDirectories;
+import com.endyary.mobsoftstore.user.User;
+import com.endyary.mobsoftstore.user.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Processes uploads of new applications in the background.
+ * The request thread only spools the archive and enqueues an {@link UploadJob} on a bounded executor,
+ * a full queue rejects the upload instead of piling up work. Validation, image extraction and storing
+ * are done by the executor while the job's progress is kept in the DB.
+ * On shutdown the running jobs are completed and the queued ones are left in the DB, to be resumed on the next start.
+ */
+@Service
+public class UploadJobService implements DisposableBean {
+
+    public static final String SUCCESS_MESSAGE = "Application successfully added!";
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadJobService.class);
+
+    private final Path jobDirectory;
+
+    private final TaskExecutor uploadJobExecutor;
+
+    private final UploadJobRepository uploadJobRepository;
+
+    private final ApplicationService applicationService;
+
+    private final UserService userService;
+
+    private volatile boolean shuttingDown;
+
+    public UploadJobService(@Value("${upload.job.directory:}") String jobDirectory, DataDirectories dataDirectories,
+                            @Qualifier("uploadJobExecutor") TaskExecutor uploadJobExecutor,
+                            UploadJobRepository uploadJobRepository, ApplicationService applicationService,
+                            UserService userService) throws IOException {
+        this.jobDirectory = dataDirectories.resolve(jobDirectory, "jobs");
+        this.uploadJobExecutor = uploadJobExecutor;
+        this.uploadJobRepository = uploadJobRepository;
+        this.applicationService = applicationService;
+        this.userService = userService;
+    }
+
+    /**
+     * Spools the uploaded archive and enqueues a job processing it
+     *
+     * @param appRequest {@link ApplicationRequest}
+     * @param archive    {@link MultipartFile} archive
+     * @return the queued {@link UploadJob}
+     * @throws TaskRejectedException if the queue is full or the application is shutting down
+     * @throws IOException           if the archive can't be spooled
+     */
+    public UploadJob submit(ApplicationRequest appRequest, MultipartFile archive) throws IOException {
+        if (shuttingDown) {
+            throw new TaskRejectedException("Upload jobs are not accepted during shutdown");
+        }
+        String id = UUID.randomUUID().toString();
+        Path archiveFile = jobDirectory.resolve(id + ".zip");
+
+        // A spooled upload is moved (not copied) to the job's file, a small one is written from memory
+        archive.transferTo(archiveFile.toFile());
+        User user = userService.getCurrentUser();
+        UploadJob job = new UploadJob(id, UploadJobStatus.QUEUED, null, null, appRequest,
+                archive.getOriginalFilename(), archiveFile.toString(), user.getId());
+        uploadJobRepository.insert(job);
+        try {
+            uploadJobExecutor.execute(() -> process(id));
+        } catch (TaskRejectedException e) {
+            uploadJobRepository.delete(id);
+            deleteFile(archiveFile);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Returns the job's status
+     *
+     * @param id job ID
+     * @return Optional {@link UploadJobResponse}
+     */
+    public Optional<UploadJobResponse> findStatus(String id) {
+        return uploadJobRepository.findById(id)
+                .map(job -> new UploadJobResponse(job.id(), job.status(), job.message(), job.applicationId()));
+    }
+
+    /**
+     * Validates the job's archive, extracts the images and stores the application.
+     * A job taken from the queue during shutdown is left queued.
+     *
+     * @param id job ID
+     */
+    void process(String id) {
+        if (shuttingDown) {
+            return;
+        }
+        Optional<UploadJob> queuedJob = uploadJobRepository.findById(id);
+        if (queuedJob.isEmpty() || queuedJob.get().status().isFinished()) {
+            return;
+        }
+        UploadJob job = queuedJob.get();
+        Path archiveFile = Path.of(job.archiveFile());
+        try {
+            uploadJobRepository.updateStatus(id, UploadJobStatus.VALIDATING, null, null);
+            if (applicationService.existsByName(job.request().getName())) {
+                fail(id, String.format("Application with the name %s already exist!", job.request().getName()));
+                return;
+            }
+            User user = userService.findById(job.developerId()).orElseThrow(
+                    () -> new ArchiveProcessingException("Uploading developer doesn't exist!", null));
+            Application application = applicationService.getEntityFromDTO(job.request(), job.archiveName(),
+                    archiveFile, user);
+
+            uploadJobRepository.updateStatus(id, UploadJobStatus.STORING, null, null);
+            application = applicationService.save(application);
+            uploadJobRepository.updateStatus(id, UploadJobStatus.DONE, SUCCESS_MESSAGE, application.getId());
+        } catch (ArchiveProcessingException e) {
+            if (e.getCause() != null) {
+                logger.error("Upload job {} failed", id, e);
+            }
+            fail(id, e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Upload job {} failed", id, e);
+            fail(id, "Error while processing the archive!");
+        } finally {
+            deleteFile(archiveFile);
+        }
+    }
+
+    /**
+     * Enqueues the jobs left unfinished by the previous run.
+     * A job interrupted while running is started again from the beginning.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void resumeJobs() {
+        List<UploadJob> jobs = uploadJobRepository.findUnfinished();
+        for (UploadJob job : jobs) {
+            if (!Files.exists(Path.of(job.archiveFile()))) {
+                fail(job.id(), "Uploaded archive was lost!");
+                continue;
+            }
+            uploadJobRepository.updateStatus(job.id(), UploadJobStatus.QUEUED, null, null);
+            try {
+                uploadJobExecutor.execute(() -> process(job.id()));
+            } catch (TaskRejectedException e) {
+                logger.warn("Upload job {} stays queued until the next start, the queue is full", job.id());
+            }
+        }
+        if (!jobs.isEmpty()) {
+            logger.info("Resumed {} upload job(s)", jobs.size());
+        }
+    }
+
+    /**
+     * Stops taking jobs from the queue, the executor then waits for the running ones
+     */
+    @Override
+    public void destroy() {
+        shuttingDown = true;
+    }
+
+    private void fail(String id, String message) {
+        uploadJobRepository.updateStatus(id, UploadJobStatus.FAILED, message, null);
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Uploaded archive {} can't be deleted", file, e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.endyary.mobsoftstore.application;
+
+/**
+ * Progress of an {@link UploadJob}
+ */
+public enum UploadJobStatus {
+    QUEUED, VALIDATING, STORING, DONE, FAILED;
+
+    /**
+     * Returns whether the job has ended, successfully or not
+     *
+     * @return true for {@link #DONE} and {@link #FAILED}
+     */
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -0,0 +1,30 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.ArchiveInspectionLimits;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application archive inspection configuration
+ */
+@Configuration
+public class ArchiveInspectionConfig {
+
+    @Value("${archive.inspection.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${archive.inspection.max-total-size:4294967296}")
+    private long maxTotalSize;
+
+    @Value("${archive.inspection.max-compression-ratio:100}")
+    private int maxCompressionRatio;
+
+    @Value("${archive.inspection.max-image-size:8388608}")
+    private int maxImageSize;
+
+    @Bean
+    public ArchiveInspectionLimits archiveInspectionLimits() {
+        return new ArchiveInspectionLimits(maxEntries, maxTotalSize, maxCompressionRatio, maxImageSize);
+    }
+}
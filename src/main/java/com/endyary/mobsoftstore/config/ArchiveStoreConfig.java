@@ -0,0 +1,96 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.ArchiveStore;
+import com.endyary.mobsoftstore.application.BlobArchiveStore;
+import com.endyary.mobsoftstore.application.BlobRepository;
+import com.endyary.mobsoftstore.application.FileSystemArchiveStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Application archive storage configuration
+ */
+@Configuration
+public class ArchiveStoreConfig {
+
+    public static final String FILESYSTEM_STORE = "filesystem";
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveStoreConfig.class);
+
+    @Value("${archive.store.type:" + FILESYSTEM_STORE + "}")
+    private String storeType;
+
+    @Value("${archive.store.directory:}")
+    private String storeDirectory;
+
+    @Value("${archive.store.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    @Bean
+    public BlobArchiveStore blobArchiveStore(JdbcTemplate jdbcTemplate, BlobRepository blobRepository) {
+        return new BlobArchiveStore(jdbcTemplate, blobRepository);
+    }
+
+    /**
+     * The startup fails if a file recorded by the file system store is missing, rather than every download of it.
+     * The files no application points to are deleted.
+     */
+    @Bean
+    @Primary
+    public ArchiveStore archiveStore(JdbcTemplate jdbcTemplate, BlobRepository blobRepository,
+                                     DataDirectories dataDirectories) throws IOException {
+        if (FILESYSTEM_STORE.equals(storeType)) {
+            FileSystemArchiveStore archiveStore = new FileSystemArchiveStore(
+                    dataDirectories.resolve(storeDirectory, "archives"), jdbcTemplate,
+                    blobArchiveStore(jdbcTemplate, blobRepository));
+            List<Path> missingFiles = archiveStore.findMissingFiles();
+            if (!missingFiles.isEmpty()) {
+                throw new IllegalStateException(missingFiles.size() + " archive file(s) are missing in "
+                        + archiveStore.getDirectory() + ", e.g. " + missingFiles.get(0));
+            }
+            int count = archiveStore.removeUnreferencedFiles();
+            if (count > 0) {
+                logger.info("Deleted {} unreferenced archive file(s) from {}", count, archiveStore.getDirectory());
+            }
+            return archiveStore;
+        }
+        return blobArchiveStore(jdbcTemplate, blobRepository);
+    }
+
+    /**
+     * Moves archives kept in the applications table to the file system store or to the shared blobs, if enabled
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void migrateArchives(ContextRefreshedEvent event) throws IOException {
+        if (!migrateOnStartup) {
+            return;
+        }
+        ArchiveStore archiveStore = event.getApplicationContext().getBean(ArchiveStore.class);
+        if (archiveStore instanceof FileSystemArchiveStore fileSystemArchiveStore) {
+            int count = fileSystemArchiveStore.migrateFromTable();
+            if (count > 0) {
+                logger.info("Moved {} archive(s) from the applications table to {}", count,
+                        fileSystemArchiveStore.getDirectory());
+            }
+        } else if (archiveStore instanceof BlobArchiveStore blobArchiveStore) {
+            int count = blobArchiveStore.migrateFromTable();
+            if (count > 0) {
+                logger.info("Moved {} archive(s) from the applications table to the blobs table", count);
+            }
+        }
+    }
+}
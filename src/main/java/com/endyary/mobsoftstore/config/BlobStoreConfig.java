@@ -0,0 +1,46 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.BlobRepository;
+import com.endyary.mobsoftstore.application.BlobStorageReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Shared blob storage configuration
+ */
+@Configuration
+public class BlobStoreConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreConfig.class);
+
+    /**
+     * Moves the logo images kept in the applications table (e.g. of the initial applications) to the shared blobs.
+     * Runs after the archive migration and before the image variants of these applications are created.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void migratePictures(ContextRefreshedEvent event) {
+        BlobRepository blobRepository = event.getApplicationContext().getBean(BlobRepository.class);
+        int count = blobRepository.migrateApplicationPictures();
+        if (count > 0) {
+            logger.info("Moved logo images of {} application(s) to the blobs table", count);
+        }
+    }
+
+    /**
+     * Reports the storage saved by sharing the blobs. Runs after the archives, the logo images
+     * and the missing image variants are stored, so the report covers all of them.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 3)
+    public void reportStorage(ContextRefreshedEvent event) {
+        BlobStorageReport report = event.getApplicationContext().getBean(BlobRepository.class).getStorageReport();
+        logger.info("Blob storage: {} blob(s) with {} reference(s), {} bytes stored, {} bytes saved by sharing",
+                report.blobCount(), report.referenceCount(), report.storedBytes(), report.savedBytes());
+    }
+}
@@ -0,0 +1,91 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.ApplicationImage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jmx.export.annotation.AnnotationMBeanExporter;
+import org.springframework.jmx.support.RegistrationPolicy;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Application cache configuration.
+ * The caches are bounded Caffeine caches, which admit a new entry into a full cache only if it is used
+ * more frequently than the entry it would evict (W-TinyLFU). Every cache expires its entries after the time
+ * to live, records its statistics and exports them as a JMX bean {@code mobsoftstore:type=Cache,name=<cache>}.
+ */
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Estimated memory of an entry besides the image content (key, record, content type and hash)
+     */
+    private static final int IMAGE_ENTRY_OVERHEAD = 256;
+
+    @Value("${cache.categories.max-size:16}")
+    private long categoriesMaxSize;
+
+    @Value("${cache.categories.ttl:86400}")
+    private long categoriesTtl;
+
+    @Value("${cache.app-image.max-weight:33554432}")
+    private long appImageMaxWeight;
+
+    @Value("${cache.app-image.ttl:3600}")
+    private long appImageTtl;
+
+    @Value("${cache.default.max-size:1000}")
+    private long defaultMaxSize;
+
+    @Value("${cache.default.ttl:600}")
+    private long defaultTtl;
+
+    /**
+     * Caches missing here are created with the default bound and time to live
+     */
+    @Bean
+    public CaffeineCacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(builder(defaultTtl).maximumSize(defaultMaxSize));
+        cacheManager.registerCustomCache("categories", builder(categoriesTtl).maximumSize(categoriesMaxSize).build());
+        cacheManager.registerCustomCache("appImage", builder(appImageTtl).maximumWeight(appImageMaxWeight)
+                .weigher(CacheConfig::getImageWeight).build());
+        return cacheManager;
+    }
+
+    /**
+     * Exports the statistics of the caches, replacing the beans of a previous application context
+     */
+    @Bean
+    public AnnotationMBeanExporter cacheMetricsExporter(CacheManager cacheManager) {
+        Map<String, Object> beans = new HashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache<Object, Object> cache = ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+            beans.put("mobsoftstore:type=Cache,name=" + name, new CacheMetrics(cache));
+        }
+        AnnotationMBeanExporter exporter = new AnnotationMBeanExporter();
+        exporter.setBeans(beans);
+        exporter.setRegistrationPolicy(RegistrationPolicy.REPLACE_EXISTING);
+        return exporter;
+    }
+
+    private static Caffeine<Object, Object> builder(long ttl) {
+        return Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(ttl)).recordStats();
+    }
+
+    /**
+     * Weighs a cached logo image by its size in bytes, empty results are cached as a null value
+     */
+    private static int getImageWeight(Object key, Object value) {
+        return value instanceof ApplicationImage image ? image.content().length + IMAGE_ENTRY_OVERHEAD
+                : IMAGE_ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,54 @@
+package com.endyary.mobsoftstore.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Statistics of a cache exported as JMX attributes
+ */
+@ManagedResource(description = "Cache statistics")
+public class CacheMetrics {
+
+    private final Cache<Object, Object> cache;
+
+    public CacheMetrics(Cache<Object, Object> cache) {
+        this.cache = cache;
+    }
+
+    @ManagedAttribute(description = "Number of lookups returning a cached value")
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Number of lookups not finding a cached value")
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Ratio of the hits to all lookups")
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Number of entries evicted by the size bound or expired")
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @ManagedAttribute(description = "Sum of the weights of the evicted entries")
+    public long getEvictionWeight() {
+        return cache.stats().evictionWeight();
+    }
+
+    @ManagedAttribute(description = "Approximate number of cached entries")
+    public long getEstimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @ManagedAttribute(description = "Sum of the weights of the cached entries, the entry count of unweighted caches")
+    public long getWeightedSize() {
+        long size = cache.estimatedSize();
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(size)).orElse(size);
+    }
+}
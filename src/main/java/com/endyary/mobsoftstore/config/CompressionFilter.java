@@ -0,0 +1,377 @@
+package com.endyary.mobsoftstore.config;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses responses with gzip for the clients accepting it.
+ * Only the configured content types are compressed and only if the response reaches the minimum size,
+ * so the first bytes of a response are buffered until the size is known. Responses of other content types
+ * (e.g. archive downloads) and responses already encoded (e.g. precompressed static resources)
+ * pass through as they are.
+ * The strong ETag of a compressed response gets the {@value #GZIP_ETAG_SUFFIX} suffix, so the validators
+ * of the two encodings differ. The suffix is removed from the If-None-Match header before the conditional check.
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Set<String> mimeTypes;
+
+    private final int minSize;
+
+    public CompressionFilter(Set<String> mimeTypes, int minSize) {
+        this.mimeTypes = mimeTypes;
+        this.minSize = minSize;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acceptsGzip = !"HEAD".equals(request.getMethod()) && acceptsGzip(request);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        boolean gzipETagMatched = ifNoneMatch != null && ifNoneMatch.contains(GZIP_ETAG_SUFFIX + "\"");
+        CompressingResponse compressingResponse = new CompressingResponse(response, acceptsGzip,
+                acceptsGzip && gzipETagMatched);
+        filterChain.doFilter(gzipETagMatched ? new ETagRequest(request) : request, compressingResponse);
+        compressingResponse.finish();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].strip())) {
+                return parts.length == 1 || !isZeroQuality(parts[1]);
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(String parameter) {
+        String[] nameValue = parameter.split("=");
+        try {
+            return nameValue.length == 2 && "q".equalsIgnoreCase(nameValue[0].strip())
+                    && Double.parseDouble(nameValue[1].strip()) == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return mimeTypes.contains(mediaType.getType() + "/" + mediaType.getSubtype());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Request with the gzip suffix removed from the entity tags of the If-None-Match header
+     */
+    private static class ETagRequest extends HttpServletRequestWrapper {
+
+        ETagRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            String value = super.getHeader(name);
+            return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) && value != null ? stripSuffix(value) : value;
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            Enumeration<String> values = super.getHeaders(name);
+            if (!HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name) || values == null) {
+                return values;
+            }
+            List<String> stripped = new ArrayList<>();
+            while (values.hasMoreElements()) {
+                stripped.add(stripSuffix(values.nextElement()));
+            }
+            return Collections.enumeration(stripped);
+        }
+
+        private static String stripSuffix(String eTags) {
+            return eTags.replace(GZIP_ETAG_SUFFIX + "\"", "\"");
+        }
+    }
+
+    /**
+     * Response buffering the first {@code minSize} bytes, after which the content is either compressed
+     * or passed through unchanged
+     */
+    private class CompressingResponse extends HttpServletResponseWrapper {
+
+        private final boolean acceptsGzip;
+
+        /**
+         * Whether the client sent the ETag of the compressed content, a 304 response repeats it
+         */
+        private final boolean gzipETagMatched;
+
+        private final byte[] buffer = new byte[minSize];
+
+        private int count;
+
+        private long contentLength = -1;
+
+        /**
+         * Target of the content once decided, null while the content is buffered
+         */
+        private OutputStream target;
+
+        private GZIPOutputStream gzipStream;
+
+        private ServletOutputStream outputStream;
+
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response, boolean acceptsGzip, boolean gzipETagMatched) {
+            super(response);
+            this.acceptsGzip = acceptsGzip;
+            this.gzipETagMatched = gzipETagMatched;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return getStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStream != null && writer == null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (target == null) {
+                contentLength = len;
+            } else if (gzipStream == null) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                decide(count);
+            }
+            target.flush();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            count = 0;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            count = 0;
+            contentLength = -1;
+        }
+
+        /**
+         * Writes the buffered content and completes the compressed stream
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                if (count == 0) {
+                    // Nothing written (e.g. an error sent), the output stream is left to the container
+                    if (gzipETagMatched && getStatus() == SC_NOT_MODIFIED) {
+                        addETagSuffix();
+                    }
+                    if (contentLength >= 0) {
+                        super.setContentLengthLong(contentLength);
+                    }
+                    return;
+                }
+                decide(count);
+            }
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+        }
+
+        private ServletOutputStream getStream() {
+            if (outputStream == null) {
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        CompressingResponse.this.write(b, off, len);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        if (target != null) {
+                            target.flush();
+                        }
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        // The buffered content is written without blocking
+                        return target == null || getServletStream().isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        // Both the buffered and the compressed content end up in the stream of the response
+                        getServletStream().setWriteListener(writeListener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        private ServletOutputStream getServletStream() {
+            try {
+                return super.getOutputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                // Content of a type which is not compressed isn't buffered
+                boolean bufferable = getContentType() == null || isCompressible(getContentType());
+                if (bufferable && count + len <= buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                decide(count + len);
+            }
+            target.write(b, off, len);
+        }
+
+        /**
+         * Chooses the target of the content and writes the buffered bytes to it
+         *
+         * @param size content size known so far
+         */
+        private void decide(long size) throws IOException {
+            boolean compressible = isCompressible(getContentType());
+            if (compressible && !containsVaryAcceptEncoding()) {
+                super.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            boolean large = size >= minSize || contentLength >= minSize;
+            int status = getStatus();
+            if (acceptsGzip && compressible && large && !containsHeader(HttpHeaders.CONTENT_ENCODING)
+                    && status != SC_NO_CONTENT && status != SC_PARTIAL_CONTENT && status != SC_NOT_MODIFIED) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+                addETagSuffix();
+                gzipStream = new GZIPOutputStream(super.getOutputStream(), BUFFER_SIZE);
+                target = gzipStream;
+            } else {
+                if (gzipETagMatched && status == SC_NOT_MODIFIED) {
+                    addETagSuffix();
+                }
+                if (contentLength >= 0) {
+                    super.setContentLengthLong(contentLength);
+                }
+                target = super.getOutputStream();
+            }
+            target.write(buffer, 0, count);
+            count = 0;
+        }
+
+        /**
+         * Distinguishes the strong ETag of the compressed content from the one of the identity content
+         */
+        private void addETagSuffix() {
+            String eTag = getHeader(HttpHeaders.ETAG);
+            if (eTag != null && eTag.startsWith("\"") && eTag.endsWith("\"")
+                    && !eTag.endsWith(GZIP_ETAG_SUFFIX + "\"")) {
+                super.setHeader(HttpHeaders.ETAG, eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\"");
+            }
+        }
+
+        private boolean containsVaryAcceptEncoding() {
+            return getHeaders(HttpHeaders.VARY).stream()
+                    .anyMatch(vary -> vary.toLowerCase(Locale.ROOT).contains("accept-encoding"));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.endyary.mobsoftstore.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Directories of the files kept with the DB - the archives, the queued uploads and the spooled ones.
+ * A directory which isn't configured is created next to the DB file in the file DB mode,
+ * so the files outlive a restart like the rows pointing to them. In the memory DB mode, whose data is lost
+ * on shutdown anyway, it is created in a temporary directory of this instance, deleted on shutdown.
+ */
+@Component
+public class DataDirectories implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataDirectories.class);
+
+    private final Path root;
+
+    private final boolean temporary;
+
+    public DataDirectories(@Value("${db.mode:" + PersistenceJpaConfig.MEMORY_DB + "}") String dbMode,
+                           @Value("${db.file.path:${user.home}/mobsoftstore/storedb}") String dbFilePath)
+            throws IOException {
+        temporary = !PersistenceJpaConfig.FILE_DB.equals(dbMode);
+        root = temporary ? Files.createTempDirectory("mobsoftstore-")
+                : Path.of(dbFilePath).toAbsolutePath().getParent();
+    }
+
+    /**
+     * Returns the configured directory, or the directory of the given name next to the DB, creating it if needed
+     *
+     * @param configured configured directory, or an empty string
+     * @param name       name of the default directory
+     * @return directory path
+     * @throws IOException if the directory can't be created
+     */
+    public Path resolve(String configured, String name) throws IOException {
+        return Files.createDirectories(configured == null || configured.isBlank()
+                ? root.resolve(name) : Path.of(configured));
+    }
+
+    @Override
+    public void destroy() {
+        if (!temporary) {
+            return;
+        }
+        try {
+            FileSystemUtils.deleteRecursively(root);
+        } catch (IOException e) {
+            logger.warn("Temporary directory {} can't be deleted", root, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.ArchiveProcessingException;
+import com.endyary.mobsoftstore.application.ImageProcessor;
+import com.endyary.mobsoftstore.application.ImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+
+/**
+ * Logo image processing configuration
+ */
+@Configuration
+public class ImageProcessingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageProcessingConfig.class);
+
+    @Value("${image.processing.pool-size:2}")
+    private int poolSize;
+
+    @Value("${image.processing.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor imageProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-processing-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Creates the image variants for the applications inserted without them (e.g. the initial ones),
+     * after their logo images are moved to the shared blobs
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 2)
+    public void createMissingImageVariants(ContextRefreshedEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        ImageRepository imageRepository = context.getBean(ImageRepository.class);
+        ImageProcessor imageProcessor = context.getBean(ImageProcessor.class);
+
+        List<Long> ids = imageRepository.findApplicationIdsWithoutImages();
+        for (Long id : ids) {
+            byte[][] sourceImages = imageRepository.findSourceImages(id);
+            try {
+                imageRepository.saveImages(id, imageProcessor.createVariants(sourceImages[0], sourceImages[1]));
+            } catch (ArchiveProcessingException e) {
+                logger.warn("Image variants for the application {} can't be created", id, e);
+            }
+        }
+    }
+}
@@ -1,38 +1,83 @@
 package com.endyary.mobsoftstore.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.multipart.commons.CommonsMultipartResolver;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewResolverRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 import org.thymeleaf.extras.springsecurity5.dialect.SpringSecurityDialect;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 import org.thymeleaf.spring5.templateresolver.SpringResourceTemplateResolver;
 import org.thymeleaf.spring5.view.ThymeleafViewResolver;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
 /**
  * Spring MVC configuration
  */
 @Configuration
 @EnableWebMvc
 @EnableCaching
+@EnableScheduling
 @ComponentScan(basePackages = {"com.endyary.mobsoftstore"})
+@PropertySource("classpath:application.properties")
 public class MvcConfig implements WebMvcConfigurer {
 
     @Autowired
     private ApplicationContext applicationContext;
 
+    @Value("${upload.max-size:2147483648}")
+    private long maxUploadSize;
+
+    @Value("${upload.max-in-memory-size:262144}")
+    private int maxInMemorySize;
+
+    @Value("${upload.temp-directory:}")
+    private String uploadTempDirectory;
+
+    @Value("${static.cache-period:365}")
+    private int staticCachePeriod;
+
+    @Value("${compression.mime-types:text/html,text/css,application/javascript,application/json}")
+    private String[] compressionMimeTypes;
+
+    @Value("${compression.min-size:1024}")
+    private int compressionMinSize;
+
+    /**
+     * Static resources are linked with a content hash in the URL (rewritten by
+     * {@link org.springframework.web.servlet.resource.ResourceUrlEncodingFilter}), so they can be cached "forever".
+     * A gzip variant built next to a resource is served to the clients accepting it.
+     */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/static/**").addResourceLocations("/static/");
+        registry.addResourceHandler("/static/**").addResourceLocations("/static/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(staticCachePeriod)).cachePublic())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
     }
 
     @Bean
@@ -60,15 +105,25 @@ public class MvcConfig implements WebMvcConfigurer {
         registry.viewResolver(resolver);
     }
 
+    /**
+     * Uploads larger than the in-memory size are spooled to the temporary directory instead of the heap.
+     * By default it is next to the directory of the upload jobs, so a spooled upload is moved to its job by a rename.
+     */
     @Bean(name = "multipartResolver")
-    public CommonsMultipartResolver multipartResolver() {
+    public CommonsMultipartResolver multipartResolver(DataDirectories dataDirectories) throws IOException {
         CommonsMultipartResolver multipartResolver = new CommonsMultipartResolver();
-        multipartResolver.setMaxUploadSize(-1);
+        multipartResolver.setMaxUploadSize(maxUploadSize);
+        multipartResolver.setMaxInMemorySize(maxInMemorySize);
+        Path tempDirectory = dataDirectories.resolve(uploadTempDirectory, "uploads");
+        multipartResolver.setUploadTempDir(new FileSystemResource(tempDirectory));
         return multipartResolver;
     }
 
+    /**
+     * Registered in {@link WebAppInitializer} through a filter proxy
+     */
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("categories", "topAppLogo");
+    public CompressionFilter compressionFilter() {
+        return new CompressionFilter(Set.of(compressionMimeTypes), compressionMinSize);
     }
 }
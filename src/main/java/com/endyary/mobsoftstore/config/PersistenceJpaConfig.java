@@ -1,11 +1,23 @@
 package com.endyary.mobsoftstore.config;
 
+import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.user.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
-import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -13,7 +25,18 @@ import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import javax.persistence.SharedCacheMode;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
 
 /**
  * JPA and DB configuration
@@ -22,6 +45,69 @@ import javax.sql.DataSource;
 @EnableJpaRepositories(basePackages = {"com.endyary.mobsoftstore"})
 @EnableTransactionManagement
 public class PersistenceJpaConfig {
+
+    public static final String MEMORY_DB = "memory";
+    public static final String FILE_DB = "file";
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistenceJpaConfig.class);
+
+    /**
+     * Second-level cache regions of the query results and of the tables' update timestamps,
+     * the entity regions are named by the entities
+     */
+    private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+    private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    /**
+     * One update timestamp is kept per table, they must not be evicted before the cached query results
+     */
+    private static final int UPDATE_TIMESTAMPS_ENTRIES = 100;
+
+    @Value("${db.mode:" + MEMORY_DB + "}")
+    private String dbMode;
+
+    @Value("${db.file.path:${user.home}/mobsoftstore/storedb}")
+    private String dbFilePath;
+
+    @Value("${db.file.cache-size:65536}")
+    private long dbFileCacheSize;
+
+    @Value("${db.pool.max-size:10}")
+    private int poolMaxSize;
+
+    @Value("${db.pool.min-idle:2}")
+    private int poolMinIdle;
+
+    @Value("${db.pool.connection-timeout:30000}")
+    private long poolConnectionTimeout;
+
+    @Value("${db.pool.idle-timeout:600000}")
+    private long poolIdleTimeout;
+
+    @Value("${db.pool.max-lifetime:1800000}")
+    private long poolMaxLifetime;
+
+    @Value("${db.pool.leak-detection-threshold:0}")
+    private long poolLeakDetectionThreshold;
+
+    @Value("${jpa.cache.user.max-entries:1000}")
+    private long userCacheEntries;
+
+    @Value("${jpa.cache.user.ttl:3600}")
+    private long userCacheTtl;
+
+    @Value("${jpa.cache.application.max-entries:10000}")
+    private long applicationCacheEntries;
+
+    @Value("${jpa.cache.application.ttl:600}")
+    private long applicationCacheTtl;
+
+    @Value("${jpa.cache.query.max-entries:1000}")
+    private long queryCacheEntries;
+
+    @Value("${jpa.cache.query.ttl:600}")
+    private long queryCacheTtl;
+
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em
@@ -32,19 +118,103 @@ public class PersistenceJpaConfig {
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         em.setJpaVendorAdapter(vendorAdapter);
 
+        // Only the entities annotated with @Cache are cached, a region missing in the cache manager is an error
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+        properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+        properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+        properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+        properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager());
+        properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        em.setJpaPropertyMap(properties);
+
         return em;
     }
 
-    @Bean
+    /**
+     * Bounded in-process regions of the second-level cache, held by Caffeine like the application caches.
+     * The least recently used entries of a full region are evicted, entries expire after the time to live
+     * of their region. The statistics of the regions are exported as the JCache statistics beans
+     * {@code javax.cache:type=CacheStatistics}.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // A cache manager of its own for every application context
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("urn:mobsoftstore:hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(User.CACHE_REGION, region(userCacheEntries, Duration.ofSeconds(userCacheTtl)));
+        cacheManager.createCache(Application.CACHE_REGION,
+                region(applicationCacheEntries, Duration.ofSeconds(applicationCacheTtl)));
+        cacheManager.createCache(QUERY_RESULTS_REGION, region(queryCacheEntries, Duration.ofSeconds(queryCacheTtl)));
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, region(UPDATE_TIMESTAMPS_ENTRIES, null));
+        return cacheManager;
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxEntries, Duration timeToLive) {
+        // Hibernate keeps its own immutable entries, copying them on every access isn't needed
+        return new CaffeineConfiguration<>()
+                .setTypes(Object.class, Object.class)
+                .setStoreByValue(false)
+                .setMaximumSize(OptionalLong.of(maxEntries))
+                .setExpireAfterWrite(timeToLive == null ? OptionalLong.empty() : OptionalLong.of(timeToLive.toNanos()))
+                .setStatisticsEnabled(true);
+    }
+
+    /**
+     * Pooled connections to the in-memory DB or to the DB file (MVStore) kept across restarts,
+     * the baseline schema and the sample data are created only in an empty DB, the pending schema migrations
+     * are applied before the DB is used
+     */
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        return new EmbeddedDatabaseBuilder()
-                .generateUniqueName(false)
-                .setName("storedb")
-                .setType(EmbeddedDatabaseType.H2)
-                .addDefaultScripts()
-                .setScriptEncoding("UTF-8")
-                .ignoreFailedDrops(true)
-                .build();
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("storedb");
+        // The shutdown hook of H2 mustn't close the DB before the beans writing on shutdown
+        // (e.g. the pending download counts) are destroyed, the DB is closed with the pool. CACHE_SIZE is in KB.
+        if (FILE_DB.equals(dbMode)) {
+            config.setJdbcUrl("jdbc:h2:file:" + dbFilePath + ";CACHE_SIZE=" + dbFileCacheSize
+                    + ";DB_CLOSE_ON_EXIT=FALSE");
+        } else {
+            config.setJdbcUrl("jdbc:h2:mem:storedb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        }
+        config.setUsername("sa");
+        config.setPassword("");
+        config.setMaximumPoolSize(poolMaxSize);
+        config.setMinimumIdle(poolMinIdle);
+        config.setConnectionTimeout(poolConnectionTimeout);
+        config.setIdleTimeout(poolIdleTimeout);
+        config.setMaxLifetime(poolMaxLifetime);
+        config.setLeakDetectionThreshold(poolLeakDetectionThreshold);
+
+        HikariDataSource dataSource = new HikariDataSource(config);
+        try {
+            initialize(dataSource);
+            new SchemaMigrator(dataSource).migrate();
+        } catch (IOException | RuntimeException e) {
+            dataSource.close();
+            throw new IllegalStateException("DB initialization failed", e);
+        }
+        return dataSource;
+    }
+
+    private static void initialize(DataSource dataSource) {
+        Integer tables = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = 'USERS'", Integer.class);
+        if (tables != null && tables > 0) {
+            logger.info("Using the existing DB");
+            return;
+        }
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        logger.info("Created the DB schema and the sample data");
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate() {
+        return new JdbcTemplate(dataSource());
     }
 
     @Bean
@@ -0,0 +1,127 @@
+package com.endyary.mobsoftstore.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the password hashing of the delegate encoder on a bounded executor, so a burst of logins
+ * occupies at most the executor's workers instead of the request threads. When the executor's queue is full
+ * the login fails immediately.
+ * Successfully verified credentials are remembered for a short time, keyed by an HMAC of the password
+ * and its hash with a key generated on startup, so a repeated authentication doesn't hash again
+ * and the raw password is never kept. Concurrent logins with the same credentials share one verification.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final int KEY_SIZE = 32;
+
+    private final PasswordEncoder delegate;
+
+    private final AsyncTaskExecutor executor;
+
+    private final Cache<String, Boolean> verified;
+
+    private final Map<String, Future<Boolean>> pending = new ConcurrentHashMap<>();
+
+    private final SecretKeySpec key;
+
+    public PooledPasswordEncoder(PasswordEncoder delegate, AsyncTaskExecutor executor, Duration verifiedTtl,
+                                 long verifiedMaxSize) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.verified = Caffeine.newBuilder().expireAfterWrite(verifiedTtl).maximumSize(verifiedMaxSize).build();
+        byte[] keyBytes = new byte[KEY_SIZE];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return delegate.matches(rawPassword, encodedPassword);
+        }
+        String credentialKey = getCredentialKey(rawPassword, encodedPassword);
+        if (verified.getIfPresent(credentialKey) != null) {
+            return true;
+        }
+        // Concurrent logins with the same credentials wait for the same verification
+        Future<Boolean> verification = pending.computeIfAbsent(credentialKey, k -> submit(() -> {
+            boolean matches = delegate.matches(rawPassword, encodedPassword);
+            if (matches) {
+                verified.put(k, Boolean.TRUE);
+            }
+            return matches;
+        }));
+        try {
+            return await(verification);
+        } finally {
+            pending.remove(credentialKey, verification);
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * @throws AuthenticationServiceException if the executor is saturated
+     */
+    private <T> Future<T> submit(Callable<T> hashing) {
+        try {
+            return executor.submit(hashing);
+        } catch (TaskRejectedException e) {
+            throw new AuthenticationServiceException("Too many logins in progress, please try again later!", e);
+        }
+    }
+
+    /**
+     * @throws AuthenticationServiceException if the hashing fails
+     */
+    private static <T> T await(Future<T> hashing) {
+        try {
+            return hashing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("Password verification interrupted", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationServiceException("Password verification failed", e.getCause());
+        }
+    }
+
+    private String getCredentialKey(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(encodedPassword.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " is not available", e);
+        }
+    }
+}
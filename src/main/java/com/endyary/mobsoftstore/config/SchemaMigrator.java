@@ -0,0 +1,144 @@
+package com.endyary.mobsoftstore.config;
+
+import com.endyary.mobsoftstore.application.ContentHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies the versioned SQL scripts {@code db/migration/V<version>__<description>.sql} on top of the baseline
+ * schema in the order of their versions, each once. The applied versions are recorded in the
+ * {@value #HISTORY_TABLE} table with the checksums of their scripts, an applied script changed afterwards
+ * or a failed migration stops the startup.
+ */
+public class SchemaMigrator {
+
+    public static final String HISTORY_TABLE = "schema_history";
+
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private final DataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /**
+     * Applies the migrations not applied yet.
+     *
+     * @return number of the applied migrations
+     * @throws IOException           if a script can't be read
+     * @throws IllegalStateException if the script of an applied migration was changed, a migration failed
+     *                               or a version is duplicated
+     */
+    public int migrate() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                + "version INT PRIMARY KEY, "
+                + "description VARCHAR(255) NOT NULL, "
+                + "checksum VARCHAR(64) NOT NULL, "
+                + "success BOOLEAN NOT NULL, "
+                + "executionTime BIGINT NOT NULL, "
+                + "installedDate TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        Map<Integer, String> appliedChecksums = new HashMap<>();
+        jdbcTemplate.query("SELECT version, checksum, success FROM " + HISTORY_TABLE + " ORDER BY version",
+                rs -> {
+                    if (!rs.getBoolean(3)) {
+                        throw new IllegalStateException("Migration V" + rs.getInt(1) + " failed, repair the DB "
+                                + "and delete its row from the " + HISTORY_TABLE + " table");
+                    }
+                    appliedChecksums.put(rs.getInt(1), rs.getString(2));
+                });
+
+        int count = 0;
+        for (Migration migration : findMigrations()) {
+            String appliedChecksum = appliedChecksums.get(migration.version());
+            if (appliedChecksum != null) {
+                if (!appliedChecksum.equals(migration.checksum())) {
+                    throw new IllegalStateException("Migration V" + migration.version()
+                            + " was changed after it had been applied");
+                }
+                continue;
+            }
+            apply(migration);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the script and records it in one transaction. H2 commits the DDL statements implicitly,
+     * so a failed migration is recorded as failed, which stops the following startups.
+     */
+    private void apply(Migration migration) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator(migration.script());
+                populator.setSqlScriptEncoding("UTF-8");
+                populator.execute(dataSource);
+                record(migration, true, start);
+            });
+        } catch (RuntimeException e) {
+            record(migration, false, start);
+            throw e;
+        }
+        logger.info("Applied migration V{} {} in {} ms", migration.version(), migration.description(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void record(Migration migration, boolean success, long start) {
+        jdbcTemplate.update("INSERT INTO " + HISTORY_TABLE + " (version, description, checksum, success, "
+                        + "executionTime) VALUES (?, ?, ?, ?, ?)", migration.version(), migration.description(),
+                migration.checksum(), success, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static List<Migration> findMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource script : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            Matcher matcher = SCRIPT_NAME.matcher(script.getFilename());
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration script name " + script.getFilename());
+            }
+            try (InputStream in = script.getInputStream()) {
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                        matcher.group(2).replace('_', ' '), ContentHash.of(in.readAllBytes()), script));
+            }
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Duplicate migration version V" + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    private record Migration(int version, String description, String checksum, Resource script) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.endyary.mobsoftstore.config;
 
 import com.endyary.mobsoftstore.user.UserService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
@@ -11,17 +12,42 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
+import java.util.Map;
+
 /**
  * Spring Security configuration
  */
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    /**
+     * Encoder ID prefixed to the stored hashes, hashes stored without an ID are BCrypt hashes too
+     */
+    private static final String BCRYPT_ID = "bcrypt";
+
     private final UserService userService;
 
+    @Value("${password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${password.verification.pool-size:2}")
+    private int verificationPoolSize;
+
+    @Value("${password.verification.queue-capacity:32}")
+    private int verificationQueueCapacity;
+
+    @Value("${password.verification.cache-ttl:60}")
+    private long verifiedCacheTtl;
+
+    @Value("${password.verification.cache-size:1000}")
+    private long verifiedCacheSize;
+
     public SecurityConfig(UserService userService) {
         this.userService = userService;
     }
@@ -31,6 +57,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Hashes of another encoder or of a lower strength are replaced on login
+        authProvider.setUserDetailsPasswordService(userService);
         return authProvider;
     }
 
@@ -42,7 +70,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Override
     protected void configure(final HttpSecurity http) throws Exception {
         http.authorizeRequests()
-                .antMatchers("/newapp").hasAuthority("DEVELOPER")
+                .antMatchers("/newapp", "/addnewapp", "/uploads/*").hasAuthority("DEVELOPER")
                 .antMatchers("/download/*", "/apprating").authenticated()
                 .anyRequest().permitAll()
                 .and()
@@ -56,9 +84,30 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .and().headers().frameOptions().disable();
     }
 
+    /**
+     * BCrypt of the configured strength, run on the bounded password verification executor
+     */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        BCryptPasswordEncoder bcryptEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(BCRYPT_ID,
+                Map.of(BCRYPT_ID, bcryptEncoder));
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(bcryptEncoder);
+        return new PooledPasswordEncoder(delegatingEncoder, passwordVerificationExecutor(),
+                Duration.ofSeconds(verifiedCacheTtl), verifiedCacheSize);
+    }
+
+    /**
+     * Bounded executor hashing the passwords - a full queue fails new logins immediately
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordVerificationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(verificationPoolSize);
+        executor.setMaxPoolSize(verificationPoolSize);
+        executor.setQueueCapacity(verificationQueueCapacity);
+        executor.setThreadNamePrefix("password-verification-");
+        return executor;
     }
 
     @Bean
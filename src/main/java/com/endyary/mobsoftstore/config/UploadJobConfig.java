@@ -0,0 +1,41 @@
+package com.endyary.mobsoftstore.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Upload job processing configuration
+ */
+@Configuration
+public class UploadJobConfig {
+
+    @Value("${upload.job.pool-size:2}")
+    private int poolSize;
+
+    @Value("${upload.job.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${upload.job.shutdown-timeout:60}")
+    private int shutdownTimeout;
+
+    /**
+     * Bounded executor of the upload jobs - a full queue rejects new uploads,
+     * on shutdown the running jobs get {@code shutdownTimeout} seconds to complete, before their directories
+     * are deleted in the memory DB mode
+     */
+    @Bean
+    @DependsOn("dataDirectories")
+    public ThreadPoolTaskExecutor uploadJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(shutdownTimeout);
+        return executor;
+    }
+}
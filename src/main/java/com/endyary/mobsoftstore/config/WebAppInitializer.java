@@ -1,8 +1,12 @@
 package com.endyary.mobsoftstore.config;
 
 import org.h2.server.web.WebServlet;
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import javax.servlet.Filter;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRegistration;
@@ -27,6 +31,17 @@ public class WebAppInitializer extends AbstractAnnotationConfigDispatcherServlet
         return new String[]{"/"};
     }
 
+    /**
+     * The compression filter is a bean of the dispatcher's context, so its proxy looks it up there.
+     * The URL encoding filter rewrites the links to static resources to their fingerprinted URLs.
+     */
+    @Override
+    protected Filter[] getServletFilters() {
+        DelegatingFilterProxy compressionFilter = new DelegatingFilterProxy("compressionFilter");
+        compressionFilter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + getServletName());
+        return new Filter[]{compressionFilter, new ResourceUrlEncodingFilter()};
+    }
+
     @Override
     public void onStartup(ServletContext servletContext)
             throws ServletException {
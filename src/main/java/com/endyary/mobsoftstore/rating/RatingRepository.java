@@ -3,12 +3,20 @@ package com.endyary.mobsoftstore.rating;
 import com.endyary.mobsoftstore.application.Application;
 import com.endyary.mobsoftstore.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 
+import javax.persistence.LockModeType;
 import java.util.Optional;
 
 /**
  * Application rating repository definition
  */
 public interface RatingRepository extends JpaRepository<Rating, Long> {
+
+    /**
+     * Reads the rating with SELECT ... FOR UPDATE, a concurrent re-rate of the same user waits
+     * until the previous rating it replaces is committed
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Rating> getByApplicationAndUser(Application application, User user);
 }
@@ -0,0 +1,363 @@
+package com.endyary.mobsoftstore.search;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Suggests application names for a typed prefix, most downloaded first.
+ * Every word start of every name is kept as a lower case key in a sorted array, so the keys matching a prefix
+ * form a range found by binary search. A segment tree over the array holds the most downloaded application
+ * of every subrange, so the best applications of any range are found in O(limit * log n),
+ * even for one letter prefixes matching a large part of the catalog. Nothing is read from the DB after startup.
+ * <p>
+ * Suggestions never wait for the writers: the keys are a copy-on-write snapshot replaced by {@link #add} and
+ * {@link #rename}, the download counts and the tree are atomic arrays updated in place by {@link #increment}.
+ * A suggestion running next to a download may rank by the count before it. Only the writers are serialized.
+ */
+@Component
+public class NameSuggester {
+
+    private final Object writeLock = new Object();
+
+    private volatile Index index;
+
+    public NameSuggester(JdbcTemplate jdbcTemplate) {
+        List<String> names = new ArrayList<>();
+        List<Long> applicationIds = new ArrayList<>();
+        List<Long> downloadCounts = new ArrayList<>();
+        List<String> keyList = new ArrayList<>();
+        List<Integer> keyApplicationList = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, name, downloadCount FROM applications", rs -> {
+            int application = names.size();
+            applicationIds.add(rs.getLong(1));
+            names.add(rs.getString(2));
+            downloadCounts.add(rs.getLong(3));
+            for (String key : getKeys(rs.getString(2))) {
+                keyList.add(key);
+                keyApplicationList.add(application);
+            }
+        });
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+        String[] keys = new String[order.length];
+        int[] keyApplications = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyApplications[i] = keyApplicationList.get(order[i]);
+        }
+        index = new Index(applicationIds.stream().mapToLong(Long::longValue).toArray(), names,
+                new AtomicLongArray(downloadCounts.stream().mapToLong(Long::longValue).toArray()), keys,
+                keyApplications);
+    }
+
+    /**
+     * Adds a new application
+     *
+     * @param applicationId application's ID
+     * @param name          application's name
+     * @param downloadCount current download count
+     */
+    public void add(long applicationId, String name, long downloadCount) {
+        synchronized (writeLock) {
+            Index current = index;
+            if (current.applications.containsKey(applicationId)) {
+                return;
+            }
+            int application = current.names.size();
+            long[] applicationIds = Arrays.copyOf(current.applicationIds, application + 1);
+            applicationIds[application] = applicationId;
+            List<String> names = new ArrayList<>(current.names);
+            names.add(name);
+            AtomicLongArray downloadCounts = copyDownloadCounts(current, application + 1);
+            downloadCounts.set(application, downloadCount);
+            index = withKeys(current.keys, current.keyApplications, application, name, applicationIds, names,
+                    downloadCounts);
+        }
+    }
+
+    /**
+     * Changes the name of an application, it's suggested only under the keys of the new name
+     *
+     * @param applicationId application's ID
+     * @param name          application's new name
+     */
+    public void rename(long applicationId, String name) {
+        synchronized (writeLock) {
+            Index current = index;
+            Integer application = current.applications.get(applicationId);
+            if (application == null || current.names.get(application).equals(name)) {
+                return;
+            }
+            List<String> names = new ArrayList<>(current.names);
+            names.set(application, name);
+
+            // The keys of the old name are dropped, the order of the others is kept
+            int kept = 0;
+            String[] keys = new String[current.keys.length];
+            int[] keyApplications = new int[current.keys.length];
+            for (int i = 0; i < current.keys.length; i++) {
+                if (current.keyApplications[i] != application) {
+                    keys[kept] = current.keys[i];
+                    keyApplications[kept++] = current.keyApplications[i];
+                }
+            }
+            index = withKeys(Arrays.copyOf(keys, kept), Arrays.copyOf(keyApplications, kept), application, name,
+                    current.applicationIds, names, copyDownloadCounts(current, names.size()));
+        }
+    }
+
+    /**
+     * Counts one download of the given application
+     *
+     * @param applicationId application's ID
+     */
+    public void increment(long applicationId) {
+        synchronized (writeLock) {
+            Index current = index;
+            Integer application = current.applications.get(applicationId);
+            if (application == null) {
+                return;
+            }
+            current.downloadCounts.incrementAndGet(application);
+            for (String key : getKeys(current.names.get(application))) {
+                for (int position = lowerBound(current.keys, key);
+                     position < current.keys.length && current.keys[position].equals(key); position++) {
+                    if (current.keyApplications[position] == application) {
+                        current.updatePath(position);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns names of the applications having a word starting with the given prefix
+     *
+     * @param prefix typed prefix, case is ignored
+     * @param limit  maximum number of suggestions
+     * @return suggestions, most downloaded application first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = prefix == null ? "" : prefix.strip().toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        return index.suggest(key, limit);
+    }
+
+    /**
+     * Returns a new snapshot with the keys of the application's name inserted into the sorted keys
+     */
+    private static Index withKeys(String[] keys, int[] keyApplications, int application, String name,
+                                  long[] applicationIds, List<String> names, AtomicLongArray downloadCounts) {
+        for (String key : getKeys(name)) {
+            int position = lowerBound(keys, key);
+            String[] newKeys = new String[keys.length + 1];
+            int[] newKeyApplications = new int[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, position);
+            System.arraycopy(keyApplications, 0, newKeyApplications, 0, position);
+            newKeys[position] = key;
+            newKeyApplications[position] = application;
+            System.arraycopy(keys, position, newKeys, position + 1, keys.length - position);
+            System.arraycopy(keyApplications, position, newKeyApplications, position + 1, keys.length - position);
+            keys = newKeys;
+            keyApplications = newKeyApplications;
+        }
+        return new Index(applicationIds, names, downloadCounts, keys, keyApplications);
+    }
+
+    /**
+     * Copies the download counts of the snapshot, the counts of the snapshot in use stay untouched
+     */
+    private static AtomicLongArray copyDownloadCounts(Index current, int length) {
+        AtomicLongArray downloadCounts = new AtomicLongArray(length);
+        for (int i = 0; i < current.names.size(); i++) {
+            downloadCounts.set(i, current.downloadCounts.get(i));
+        }
+        return downloadCounts;
+    }
+
+    /**
+     * Returns the position of the first key which is not less than the given one
+     */
+    private static int lowerBound(String[] keys, String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the lower case word starts of the name - the name itself and its suffixes starting with a word
+     */
+    private static Set<String> getKeys(String name) {
+        Set<String> nameKeys = new LinkedHashSet<>();
+        String key = name.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < key.length(); i++) {
+            if (Character.isLetterOrDigit(key.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(key.charAt(i - 1)))) {
+                nameKeys.add(key.substring(i));
+            }
+        }
+        return nameKeys;
+    }
+
+    /**
+     * Applications and keys of one snapshot, only the download counts and the tree change after it's built
+     */
+    private static final class Index {
+
+        private final Map<Long, Integer> applications = new HashMap<>();
+
+        private final long[] applicationIds;
+
+        private final List<String> names;
+
+        private final AtomicLongArray downloadCounts;
+
+        /**
+         * Sorted keys and the application number of every key
+         */
+        private final String[] keys;
+
+        private final int[] keyApplications;
+
+        /**
+         * Segment tree - node i has children 2i and 2i+1, leaves start at {@code leafOffset},
+         * every node holds the key position of the best ranked application in its subrange (-1 if empty)
+         */
+        private final AtomicIntegerArray tree;
+
+        private final int leafOffset;
+
+        Index(long[] applicationIds, List<String> names, AtomicLongArray downloadCounts, String[] keys,
+              int[] keyApplications) {
+            this.applicationIds = applicationIds;
+            this.names = names;
+            this.downloadCounts = downloadCounts;
+            this.keys = keys;
+            this.keyApplications = keyApplications;
+            for (int application = 0; application < applicationIds.length; application++) {
+                applications.put(applicationIds[application], application);
+            }
+
+            leafOffset = Integer.highestOneBit(Math.max(1, keys.length - 1)) << 1;
+            tree = new AtomicIntegerArray(2 * leafOffset);
+            for (int node = 1; node < leafOffset; node++) {
+                tree.set(node, -1);
+            }
+            for (int i = 0; i < leafOffset; i++) {
+                tree.set(leafOffset + i, i < keys.length ? i : -1);
+            }
+            for (int node = leafOffset - 1; node > 0; node--) {
+                tree.set(node, best(tree.get(2 * node), tree.get(2 * node + 1)));
+            }
+        }
+
+        List<Suggestion> suggest(String key, int limit) {
+            int from = lowerBound(keys, key);
+            int to = prefixEnd(key, from);
+
+            // nodes covering the range, best ranked first; a popped inner node is replaced by its children.
+            // The node values are read once, a concurrent download doesn't reorder the queue.
+            PriorityQueue<Node> nodes = new PriorityQueue<>((a, b) ->
+                    compare(a.position(), a.downloads(), b.position(), b.downloads()));
+            for (int low = from + leafOffset, high = to + leafOffset; low < high; low >>= 1, high >>= 1) {
+                if ((low & 1) == 1) {
+                    addNode(nodes, low++);
+                }
+                if ((high & 1) == 1) {
+                    addNode(nodes, --high);
+                }
+            }
+
+            List<Suggestion> suggestions = new ArrayList<>(limit);
+            Set<Integer> suggested = new HashSet<>();
+            while (!nodes.isEmpty() && suggestions.size() < limit) {
+                Node node = nodes.poll();
+                if (node.node() >= leafOffset) {
+                    int application = keyApplications[node.position()];
+                    if (suggested.add(application)) {
+                        suggestions.add(new Suggestion(applicationIds[application], names.get(application),
+                                node.downloads()));
+                    }
+                } else {
+                    addNode(nodes, 2 * node.node());
+                    addNode(nodes, 2 * node.node() + 1);
+                }
+            }
+            return suggestions;
+        }
+
+        void updatePath(int position) {
+            for (int node = (position + leafOffset) >> 1; node > 0; node >>= 1) {
+                tree.set(node, best(tree.get(2 * node), tree.get(2 * node + 1)));
+            }
+        }
+
+        /**
+         * Adds the node with its key position and the download count of its application
+         */
+        private void addNode(PriorityQueue<Node> nodes, int node) {
+            int position = tree.get(node);
+            if (position >= 0) {
+                nodes.add(new Node(node, position, downloadCounts.get(keyApplications[position])));
+            }
+        }
+
+        private int best(int position, int otherPosition) {
+            if (position < 0 || otherPosition < 0) {
+                return Math.max(position, otherPosition);
+            }
+            long downloads = downloadCounts.get(keyApplications[position]);
+            long otherDownloads = downloadCounts.get(keyApplications[otherPosition]);
+            return compare(position, downloads, otherPosition, otherDownloads) <= 0 ? position : otherPosition;
+        }
+
+        /**
+         * Compares applications of two key positions - more downloads first, then the older application
+         */
+        private int compare(int position, long downloads, int otherPosition, long otherDownloads) {
+            int result = Long.compare(otherDownloads, downloads);
+            return result != 0 ? result
+                    : Integer.compare(keyApplications[position], keyApplications[otherPosition]);
+        }
+
+        /**
+         * Returns the position after the last key starting with the prefix
+         */
+        private int prefixEnd(String prefix, int from) {
+            int low = from;
+            int high = keys.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keys[middle].startsWith(prefix)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Tree node with the key position and the download count of its best ranked application
+     */
+    private record Node(int node, int position, long downloads) {
+    }
+}
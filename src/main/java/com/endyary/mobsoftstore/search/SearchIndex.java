@@ -0,0 +1,203 @@
+package com.endyary.mobsoftstore.search;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over application names and descriptions.
+ * It is built once from the DB and updated whenever an application is saved.
+ * Every term points to a posting list of primitive int arrays, so a query only touches the postings of its terms.
+ */
+@Component
+public class SearchIndex {
+
+    /**
+     * Weight of a term occurrence in the name, an occurrence in the description has weight 1
+     */
+    static final int NAME_WEIGHT = 5;
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    /**
+     * Application ID of every document, indexed by the document number used in the posting lists
+     */
+    private long[] applicationIds = new long[64];
+
+    private final Map<Long, Integer> documents = new HashMap<>();
+
+    /**
+     * Indexed terms of every document, so the postings can be removed when the document is updated
+     */
+    private final Map<Integer, Set<String>> documentTerms = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SearchIndex(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.query("SELECT id, name, description FROM applications", rs -> {
+            add(rs.getLong(1), rs.getString(2), rs.getString(3));
+        });
+    }
+
+    /**
+     * Adds the application to the index, replacing the previously indexed name and description
+     *
+     * @param applicationId application's ID
+     * @param name          application's name
+     * @param description   application's description
+     */
+    public void add(long applicationId, String name, String description) {
+        Map<String, Integer> weights = new HashMap<>();
+        Tokenizer.tokenize(name).forEach(term -> weights.merge(term, NAME_WEIGHT, Integer::sum));
+        Tokenizer.tokenize(description).forEach(term -> weights.merge(term, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            Integer document = documents.get(applicationId);
+            if (document == null) {
+                document = documents.size();
+                if (document == applicationIds.length) {
+                    applicationIds = Arrays.copyOf(applicationIds, document * 2);
+                }
+                applicationIds[document] = applicationId;
+                documents.put(applicationId, document);
+            } else {
+                for (String term : documentTerms.get(document)) {
+                    PostingList postingList = postings.get(term);
+                    postingList.remove(document);
+                    if (postingList.size() == 0) {
+                        postings.remove(term);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).put(document, entry.getValue());
+            }
+            documentTerms.put(document, weights.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the applications whose name or description contains any of the query terms.
+     * Results are ranked by the sum of term weights multiplied by the inverse document frequency of the terms,
+     * so applications matching more (and rarer) terms, especially in their names, come first.
+     *
+     * @param query search query
+     * @param limit maximum number of results
+     * @return IDs of the found applications, best match first
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(Tokenizer.tokenize(query));
+        if (terms.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double[] scores = new double[documentCount];
+            int[] matches = new int[0];
+            int matchCount = 0;
+            for (String term : terms) {
+                PostingList postingList = postings.get(term);
+                if (postingList == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (double) documentCount / postingList.size());
+                for (int i = 0; i < postingList.size(); i++) {
+                    int document = postingList.documents[i];
+                    if (scores[document] == 0) {
+                        if (matchCount == matches.length) {
+                            matches = Arrays.copyOf(matches, Math.max(16, matchCount * 2));
+                        }
+                        matches[matchCount++] = document;
+                    }
+                    scores[document] += postingList.weights[i] * idf;
+                }
+            }
+
+            // min-heap of the best documents, ties are ranked by the lower document number (older application)
+            Comparator<Integer> ranking = Comparator.<Integer>comparingDouble(document -> scores[document])
+                    .thenComparing(Comparator.reverseOrder());
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, Math.min(limit, matchCount)), ranking);
+            for (int i = 0; i < matchCount; i++) {
+                if (top.size() < limit) {
+                    top.add(matches[i]);
+                } else if (ranking.compare(matches[i], top.peek()) > 0) {
+                    top.poll();
+                    top.add(matches[i]);
+                }
+            }
+            Long[] result = new Long[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = applicationIds[top.poll()];
+            }
+            return List.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed applications
+     *
+     * @return document count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Document numbers (sorted) and term weights of one term
+     */
+    private static class PostingList {
+
+        private int[] documents = new int[4];
+
+        private int[] weights = new int[4];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void put(int document, int weight) {
+            int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position >= 0) {
+                weights[position] = weight;
+                return;
+            }
+            position = -position - 1;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(documents, position, documents, position + 1, size - position);
+            System.arraycopy(weights, position, weights, position + 1, size - position);
+            documents[position] = document;
+            weights[position] = weight;
+            size++;
+        }
+
+        void remove(int document) {
+            int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(documents, position + 1, documents, position, size - position - 1);
+            System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+            size--;
+        }
+    }
+}
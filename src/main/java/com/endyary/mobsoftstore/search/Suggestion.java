@@ -0,0 +1,11 @@
+package com.endyary.mobsoftstore.search;
+
+/**
+ * Application name suggested for a typed prefix
+ *
+ * @param id            application's ID
+ * @param name          application's name
+ * @param downloadCount download count used for ranking
+ */
+public record Suggestion(long id, String name, long downloadCount) {
+}
@@ -0,0 +1,31 @@
+package com.endyary.mobsoftstore.user;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Authenticated user kept in the security context.
+ * It carries the user's ID and role, so the current user is resolved without a DB lookup.
+ */
+public class UserPrincipal extends org.springframework.security.core.userdetails.User {
+
+    private final long id;
+
+    private final Role role;
+
+    public UserPrincipal(long id, String username, String password, Role role,
+                         Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+        this.role = role;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+}
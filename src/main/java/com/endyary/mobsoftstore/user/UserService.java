@@ -4,6 +4,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -16,7 +17,7 @@ import java.util.Optional;
  * User service class
  */
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -34,6 +35,16 @@ public class UserService implements UserDetailsService {
         return userRepository.findByUsername(username);
     }
 
+    /**
+     * Returns {@link User} for the given ID, if exists.
+     *
+     * @param id User's ID
+     * @return Optional User instance
+     */
+    public Optional<User> findById(Long id) {
+        return userRepository.findById(id);
+    }
+
     /**
      * Performs authentication and returns User information.
      * Used by Spring Security during the authentication process.
@@ -47,8 +58,27 @@ public class UserService implements UserDetailsService {
         User principal = userRepository.findByUsername(username)
                 .orElseThrow(
                         () -> new UsernameNotFoundException(String.format("User with username - %s, not found", username)));
-        return new org.springframework.security.core.userdetails.User(principal.getUsername(), principal.getPassword(),
-                getGrantedAuthorities(principal));
+        return new UserPrincipal(principal.getId(), principal.getUsername(), principal.getPassword(),
+                principal.getRole(), getGrantedAuthorities(principal));
+    }
+
+    /**
+     * Replaces the stored password hash with the given one.
+     * Used by Spring Security to upgrade the hash on a successful login.
+     *
+     * @param userDetails authenticated user
+     * @param newPassword new password hash
+     * @return the user with the new password hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername()).orElseThrow(
+                () -> new UsernameNotFoundException(String.format("User with username - %s, not found",
+                        userDetails.getUsername())));
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        return new UserPrincipal(user.getId(), user.getUsername(), newPassword, user.getRole(),
+                getGrantedAuthorities(user));
     }
 
     /**
@@ -74,18 +104,18 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Returns the currently logged user with the help of Spring Security context
+     * Returns the currently logged user with the help of Spring Security context.
+     * The user is a reference to the entity identified by the {@link UserPrincipal}, which is not loaded
+     * unless its state is accessed. Only an authentication without the principal is looked up by the username.
      *
      * @return Current {@link User}
      */
     public User getCurrentUser() {
-        User user = null;
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        Optional<User> userOptional = findByUsername(authentication.getName());
-        if (userOptional.isPresent()) {
-            user = userOptional.get();
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return userRepository.getReferenceById(principal.getId());
         }
-        return user;
+        return findByUsername(authentication.getName()).orElse(null);
     }
 
 }
@@ -1,3 +1,4 @@
 insert  into users (username, password, role) values ('developer1', '$2a$10$6D45LGybvHYUxHMyiQ722.vev48PZZeS2sCIELQCZsSW433n5X3wy', 'DEVELOPER'), ('developer2', '$2a$10$6D45LGybvHYUxHMyiQ722.vev48PZZeS2sCIELQCZsSW433n5X3wy', 'DEVELOPER'),('user1', '$2a$10$6D45LGybvHYUxHMyiQ722.vev48PZZeS2sCIELQCZsSW433n5X3wy', 'USER'),('user2', '$2a$10$6D45LGybvHYUxHMyiQ722.vev48PZZeS2sCIELQCZsSW433n5X3wy', 'USER');
 insert into applications (name, category, description, developer_id, archive, archiveName, pictureSmall, pictureBig, downloadCount) values ('Apple', 'HEALTH', 'Apple tool description', 1, FILE_READ('classpath:app-archive/insert/apple/apple.zip'), 'apple.zip', FILE_READ('classpath:app-archive/insert/apple/apple_128.png'),FILE_READ('classpath:app-archive/insert/apple/apple_512.png'), 14), ('Ball', 'MULTIMEDIA', 'Ball app description', 1, FILE_READ('classpath:app-archive/insert/ball/ball.zip'), 'ball.zip', FILE_READ('classpath:app-archive/insert/ball/ball_128.png'),FILE_READ('classpath:app-archive/insert/ball/ball_512.png'), 19),('House', 'TOOLS', 'House app description', 1, FILE_READ('classpath:app-archive/insert/house/house.zip'), 'house.zip', FILE_READ('classpath:app-archive/insert/house/house_128.png'),FILE_READ('classpath:app-archive/insert/house/house_512.png'), 42),('Recycle', 'TOOLS', 'Recycle app description', 1, FILE_READ('classpath:app-archive/insert/recycle/recycle.zip'), 'recycle.zip', FILE_READ('classpath:app-archive/insert/recycle/recycle_128.png'),FILE_READ('classpath:app-archive/insert/recycle/recycle_512.png'), 36),('Rocket', 'PRODUCTIVITY', 'Rocket app description', 1, FILE_READ('classpath:app-archive/insert/rocket/rocket.zip'), 'rocket.zip', FILE_READ('classpath:app-archive/insert/rocket/rocket_128.png'),FILE_READ('classpath:app-archive/insert/rocket/rocket_512.png'), 9),('Run', 'HEALTH', 'Run app description', 2, FILE_READ('classpath:app-archive/insert/run/run.zip'), 'run.zip', FILE_READ('classpath:app-archive/insert/run/run_128.png'),FILE_READ('classpath:app-archive/insert/run/run_512.png'), 25),('Splash', 'MULTIMEDIA', 'Splash app description', 2, FILE_READ('classpath:app-archive/insert/splash/splash.zip'), 'splash.zip', FILE_READ('classpath:app-archive/insert/splash/splash_128.png'),FILE_READ('classpath:app-archive/insert/splash/splash_512.png'), 53),('Tooth', 'HEALTH', 'Tooth app description', 2, FILE_READ('classpath:app-archive/insert/tooth/tooth.zip'), 'tooth.zip', FILE_READ('classpath:app-archive/insert/tooth/tooth_128.png'),FILE_READ('classpath:app-archive/insert/tooth/tooth_512.png'), 62), ('Triangle', 'PRODUCTIVITY', 'Triangle app description', 2, FILE_READ('classpath:app-archive/insert/triangle/triangle.zip'), 'triangle.zip', FILE_READ('classpath:app-archive/insert/triangle/triangle_128.png'),FILE_READ('classpath:app-archive/insert/triangle/triangle_512.png'), 44),('Tux', 'GAMES', 'Tux app description', 2, FILE_READ('classpath:app-archive/insert/tux/tux.zip'), 'tux.zip', FILE_READ('classpath:app-archive/insert/tux/tux_128.png'),FILE_READ('classpath:app-archive/insert/tux/tux_512.png'), 29);
-insert into ratings (application_id, user_id, rating) values (1, 3, 4), (2, 3, 5), (3, 4, 3), (4, 4, 3), (1, 3, 4), (2, 3, 5), (3, 4, 4), (3, 4, 5), (5, 3, 4), (6, 3, 5), (7, 4, 3), (8, 4, 3), (8, 3, 4), (7, 3, 5), (6, 4, 4), (5, 4, 5), (9, 3, 4), (10, 3, 5), (9, 4, 4), (10, 4, 5);
\ No newline at end of file
+insert into ratings (application_id, user_id, rating) values (1, 3, 4), (2, 3, 5), (3, 4, 3), (4, 4, 3), (1, 3, 4), (2, 3, 5), (3, 4, 4), (3, 4, 5), (5, 3, 4), (6, 3, 5), (7, 4, 3), (8, 4, 3), (8, 3, 4), (7, 3, 5), (6, 4, 4), (5, 4, 5), (9, 3, 4), (10, 3, 5), (9, 4, 4), (10, 4, 5);
+update applications a set ratingSum = (select coalesce(sum(r.rating), 0) from ratings r where r.application_id = a.id), ratingCount = (select count(*) from ratings r where r.application_id = a.id), rating1Count = (select count(*) from ratings r where r.application_id = a.id and r.rating = 1), rating2Count = (select count(*) from ratings r where r.application_id = a.id and r.rating = 2), rating3Count = (select count(*) from ratings r where r.application_id = a.id and r.rating = 3), rating4Count = (select count(*) from ratings r where r.application_id = a.id and r.rating = 4), rating5Count = (select count(*) from ratings r where r.application_id = a.id and r.rating = 5);
@@ -0,0 +1,2 @@
+-- The lookup of a user by name on every login, one user per name
+CREATE UNIQUE INDEX IF NOT EXISTS users_username_idx ON users (username);
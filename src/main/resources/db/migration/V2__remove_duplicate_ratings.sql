@@ -0,0 +1,6 @@
+-- Removes the duplicated ratings of a user for an application, which V3 doesn't allow any more.
+-- The latest rating of the user is kept, the rating aggregates of the affected applications are recomputed
+-- and their versions increased, so their cached details pages are refreshed
+UPDATE applications SET version = version + 1, modifiedDate = CURRENT_TIMESTAMP WHERE id IN (SELECT application_id FROM ratings GROUP BY application_id, user_id HAVING COUNT(*) > 1);
+DELETE FROM ratings r WHERE EXISTS (SELECT 1 FROM ratings n WHERE n.application_id = r.application_id AND n.user_id = r.user_id AND n.id > r.id);
+UPDATE applications a SET ratingSum = (SELECT COALESCE(SUM(r.rating), 0) FROM ratings r WHERE r.application_id = a.id), ratingCount = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id), rating1Count = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id AND r.rating = 1), rating2Count = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id AND r.rating = 2), rating3Count = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id AND r.rating = 3), rating4Count = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id AND r.rating = 4), rating5Count = (SELECT COUNT(*) FROM ratings r WHERE r.application_id = a.id AND r.rating = 5) WHERE a.id IN (SELECT application_id FROM ratings);
@@ -0,0 +1,2 @@
+-- The rating of a user for an application, one rating per user and application
+CREATE UNIQUE INDEX ratings_application_user_idx ON ratings (application_id, user_id);
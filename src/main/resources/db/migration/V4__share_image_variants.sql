@@ -0,0 +1,6 @@
+-- Moves the logo image variants to the shared blobs, every variant row becomes a reference to the blob
+-- of its content, so the variants of e.g. the default logos are stored once
+INSERT INTO blobs (hash, content, size, refCount) SELECT hash, content, OCTET_LENGTH(content), 0 FROM (SELECT hash, content, ROW_NUMBER() OVER (PARTITION BY hash ORDER BY application_id, size) AS rowNumber FROM application_images) i WHERE i.rowNumber = 1 AND NOT EXISTS (SELECT 1 FROM blobs b WHERE b.hash = i.hash);
+UPDATE blobs b SET refCount = refCount + (SELECT COUNT(*) FROM application_images i WHERE i.hash = b.hash) WHERE b.hash IN (SELECT hash FROM application_images);
+ALTER TABLE application_images DROP COLUMN content;
+ALTER TABLE application_images ADD FOREIGN KEY (hash) REFERENCES blobs (hash);
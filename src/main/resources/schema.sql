@@ -1,3 +1,5 @@
+-- Baseline schema of an empty DB, later changes are the versioned scripts in db/migration
+
 CREATE TABLE users (
    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
    username VARCHAR(255) NOT NULL,
@@ -5,21 +7,53 @@ CREATE TABLE users (
    role VARCHAR(255) NOT NULL
 );
 
+CREATE TABLE blobs (
+   hash VARCHAR(64) PRIMARY KEY,
+   content BLOB NOT NULL,
+   size BIGINT NOT NULL,
+   refCount INT NOT NULL DEFAULT 0
+);
+
 CREATE TABLE applications (
    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
    name VARCHAR(255),
    category VARCHAR(255),
    description VARCHAR(255),
    developer_id BIGINT NOT NULL,
-   archive BLOB NOT NULL,
+   archive BLOB,
    archiveName VARCHAR(255),
-   pictureSmall BLOB NOT NULL,
-   pictureBig BLOB NOT NULL,
+   archiveHash VARCHAR(64),
+   archivePath VARCHAR(255),
+   pictureSmall BLOB,
+   pictureBig BLOB,
+   pictureSmallHash VARCHAR(64),
+   pictureBigHash VARCHAR(64),
    downloadCount INT NOT NULL DEFAULT 0,
-   createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-   FOREIGN KEY (developer_id) REFERENCES users(id)
+   ratingSum BIGINT NOT NULL DEFAULT 0,
+   ratingCount INT NOT NULL DEFAULT 0,
+   rating1Count INT NOT NULL DEFAULT 0,
+   rating2Count INT NOT NULL DEFAULT 0,
+   rating3Count INT NOT NULL DEFAULT 0,
+   rating4Count INT NOT NULL DEFAULT 0,
+   rating5Count INT NOT NULL DEFAULT 0,
+   ratingAverage DOUBLE GENERATED ALWAYS AS (CASE WHEN ratingCount = 0 THEN 0 ELSE CAST(ratingSum AS DOUBLE) / ratingCount END),
+   createdDate TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+   version BIGINT NOT NULL DEFAULT 0,
+   modifiedDate TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+   FOREIGN KEY (developer_id) REFERENCES users(id),
+   FOREIGN KEY (pictureSmallHash) REFERENCES blobs(hash),
+   FOREIGN KEY (pictureBigHash) REFERENCES blobs(hash)
 );
 
+CREATE INDEX applications_name_idx ON applications (category, name, id);
+CREATE INDEX applications_name_desc_idx ON applications (category, name DESC, id DESC);
+CREATE INDEX applications_downloads_idx ON applications (category, downloadCount, id);
+CREATE INDEX applications_downloads_desc_idx ON applications (category, downloadCount DESC, id DESC);
+CREATE INDEX applications_rating_idx ON applications (category, ratingAverage, id);
+CREATE INDEX applications_rating_desc_idx ON applications (category, ratingAverage DESC, id DESC);
+CREATE INDEX applications_newest_idx ON applications (category, createdDate, id);
+CREATE INDEX applications_newest_desc_idx ON applications (category, createdDate DESC, id DESC);
+
 CREATE TABLE ratings (
    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
    application_id BIGINT NOT NULL,
@@ -28,4 +62,29 @@ CREATE TABLE ratings (
    createdDate TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
    FOREIGN KEY (application_id) REFERENCES applications (id),
    FOREIGN KEY (user_id) REFERENCES users (id)
-);
\ No newline at end of file
+);
+
+CREATE TABLE application_images (
+   application_id BIGINT NOT NULL,
+   size INT NOT NULL,
+   contentType VARCHAR(255) NOT NULL,
+   content BLOB NOT NULL,
+   hash VARCHAR(64) NOT NULL,
+   PRIMARY KEY (application_id, size),
+   FOREIGN KEY (application_id) REFERENCES applications (id)
+);
+
+CREATE TABLE upload_jobs (
+   id VARCHAR(36) PRIMARY KEY,
+   status VARCHAR(16) NOT NULL,
+   message VARCHAR(255),
+   application_id BIGINT,
+   name VARCHAR(255),
+   category VARCHAR(255),
+   description VARCHAR(255),
+   archiveName VARCHAR(255),
+   archiveFile VARCHAR(1024) NOT NULL,
+   developer_id BIGINT NOT NULL,
+   createdDate TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+   FOREIGN KEY (developer_id) REFERENCES users (id)
+);
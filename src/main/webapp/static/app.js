@@ -4,4 +4,50 @@ function newAppValidate() {
     let archive = document.getElementById("archive").value;
 
     document.getElementById("submit").disabled = (name == "" || category == "" || archive == "");
-}
\ No newline at end of file
+}
+
+function suggestNames(input) {
+    let prefix = input.value.trim();
+    let list = document.getElementById(input.getAttribute("list"));
+    if (prefix == "") {
+        list.replaceChildren();
+        return;
+    }
+    fetch(input.dataset.suggestUrl + "?prefix=" + encodeURIComponent(prefix))
+        .then(response => response.json())
+        .then(suggestions => {
+            if (input.value.trim() != prefix) {
+                return;
+            }
+            list.replaceChildren(...suggestions.map(suggestion => {
+                let option = document.createElement("option");
+                option.value = suggestion.name;
+                return option;
+            }));
+        });
+}
+
+const UPLOAD_STEPS = {
+    QUEUED: {progress: 25, message: "Upload queued"},
+    VALIDATING: {progress: 50, message: "Validating the archive"},
+    STORING: {progress: 75, message: "Storing the application"},
+    DONE: {progress: 100},
+    FAILED: {progress: 100}
+};
+
+function trackUpload(status) {
+    fetch(status.dataset.statusUrl)
+        .then(response => response.json())
+        .then(job => {
+            let step = UPLOAD_STEPS[job.status];
+            status.querySelector(".upload-status-message").textContent = job.message || step.message;
+            status.querySelector(".progress-bar").style.width = step.progress + "%";
+            if (job.status == "DONE") {
+                status.classList.replace("alert-info", "alert-success");
+            } else if (job.status == "FAILED") {
+                status.classList.replace("alert-info", "alert-danger");
+            } else {
+                setTimeout(() => trackUpload(status), 1000);
+            }
+        });
+}
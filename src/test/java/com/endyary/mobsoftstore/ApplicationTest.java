@@ -1,22 +1,72 @@
 package com.endyary.mobsoftstore;
 
 import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.application.ApplicationImage;
+import com.endyary.mobsoftstore.application.ApplicationPage;
+import com.endyary.mobsoftstore.application.ApplicationRepository;
+import com.endyary.mobsoftstore.application.ApplicationRequest;
 import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.ApplicationSort;
+import com.endyary.mobsoftstore.application.ApplicationSummary;
 import com.endyary.mobsoftstore.application.ArchiveInspector;
+import com.endyary.mobsoftstore.application.ArchiveProcessingException;
+import com.endyary.mobsoftstore.application.ArchiveStore;
+import com.endyary.mobsoftstore.application.BlobArchiveStore;
+import com.endyary.mobsoftstore.application.BlobRepository;
+import com.endyary.mobsoftstore.application.BlobStorageReport;
 import com.endyary.mobsoftstore.application.Category;
+import com.endyary.mobsoftstore.application.DownloadLeaderboard;
+import com.endyary.mobsoftstore.application.FileSystemArchiveStore;
+import com.endyary.mobsoftstore.application.ImageProcessor;
+import com.endyary.mobsoftstore.application.ImageRepository;
+import com.endyary.mobsoftstore.application.InspectedArchive;
+import com.endyary.mobsoftstore.application.RatingAggregateRepository;
+import com.endyary.mobsoftstore.application.RatingAggregates;
+import com.endyary.mobsoftstore.application.RatingDrift;
+import com.endyary.mobsoftstore.application.RatingReconciliationJob;
 import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.rating.RatingRequest;
+import com.endyary.mobsoftstore.user.User;
+import com.endyary.mobsoftstore.user.UserService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {MvcConfig.class})
@@ -26,9 +76,45 @@ class ApplicationTest {
     @Autowired
     ApplicationService applicationService;
 
+    @Autowired
+    ApplicationRepository applicationRepository;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
     @Autowired
     ArchiveInspector archiveInspector;
 
+    @Autowired
+    DownloadLeaderboard downloadLeaderboard;
+
+    @Autowired
+    RatingAggregateRepository ratingAggregateRepository;
+
+    @Autowired
+    RatingReconciliationJob ratingReconciliationJob;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    BlobRepository blobRepository;
+
+    @Autowired
+    BlobArchiveStore blobArchiveStore;
+
+    @Autowired
+    ImageRepository imageRepository;
+
+    @Autowired
+    ArchiveStore archiveStore;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Test
     void findById_validId_appFound() {
         Application dbApp = applicationService.findById(1L);
@@ -36,10 +122,35 @@ class ApplicationTest {
     }
 
     @Test
-    void findById_validId_blobsSaved() {
+    void findById_validId_blobsSaved() throws IOException {
         Application dbApp = applicationService.findById(1L);
-        Assertions.assertNotNull(dbApp.getArchive());
-        Assertions.assertNotNull(dbApp.getPictureSmall());
+        Assertions.assertTrue(applicationService.getArchiveSize(dbApp.getId()) > 0);
+        Assertions.assertNotNull(dbApp.getPictureSmallHash());
+        Assertions.assertNotNull(dbApp.getPictureBigHash());
+    }
+
+    @Test
+    void findById_validId_archiveNotLoaded() {
+        Application dbApp = applicationService.findById(1L);
+        Assertions.assertNull(dbApp.getArchiveFile());
+    }
+
+    @Test
+    void getArchivePath_migratedArchive_fileExists() {
+        Optional<Path> archivePath = applicationService.getArchivePath(1L);
+        Assertions.assertTrue(archivePath.isPresent());
+        Assertions.assertTrue(Files.isRegularFile(archivePath.get()));
+    }
+
+    @Test
+    void writeArchive_validId_contentStreamed() throws IOException {
+        byte[] expected;
+        try (FileInputStream fis = new FileInputStream("src/main/resources/app-archive/insert/apple/apple.zip")) {
+            expected = fis.readAllBytes();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        applicationService.writeArchive(1L, out);
+        Assertions.assertArrayEquals(expected, out.toByteArray());
     }
 
     @Test
@@ -49,16 +160,187 @@ class ApplicationTest {
     }
 
     @Test
-    void mostDownloadedTest() {
-        List<String> appList = applicationService.getImagesForTopDownloaded();
-        Assertions.assertEquals(5, appList.size());
+    void leaderboard_incrementPastFifth_enteredTop() {
+        List<Long> top = downloadLeaderboard.getTop(DownloadLeaderboard.TOP_SIZE);
+        long candidate = downloadLeaderboard.getTop(100).stream().filter(id -> !top.contains(id)).findFirst()
+                .orElseThrow();
+        long versionBefore = downloadLeaderboard.getVersion();
+
+        long missing = downloadLeaderboard.getDownloadCount(top.get(top.size() - 1))
+                - downloadLeaderboard.getDownloadCount(candidate) + 1;
+        Application app = applicationService.findById(candidate);
+        for (long i = 0; i < missing; i++) {
+            applicationService.increaseDownloadCount(app);
+        }
+
+        Assertions.assertTrue(downloadLeaderboard.getTop(DownloadLeaderboard.TOP_SIZE).contains(candidate));
+        Assertions.assertTrue(downloadLeaderboard.getVersion() > versionBefore);
+    }
+
+    @Test
+    void leaderboard_categoryTop_orderedByDownloads() {
+        List<Long> healthTop = downloadLeaderboard.getTop(Category.HEALTH, 3);
+        Assertions.assertEquals(3, healthTop.size());
+        for (int i = 1; i < healthTop.size(); i++) {
+            Assertions.assertTrue(downloadLeaderboard.getDownloadCount(healthTop.get(i - 1))
+                    >= downloadLeaderboard.getDownloadCount(healthTop.get(i)));
+            Assertions.assertEquals(Category.HEALTH, applicationService.findById(healthTop.get(i)).getCategory());
+        }
     }
 
     @Test
     void findByCategoryTest() {
         String category = "tools".toUpperCase();
-        List<Application> appList = applicationService.findByCategory(Category.valueOf(category));
-        Assertions.assertFalse(appList.isEmpty());
+        ApplicationPage page = applicationService.findPage(Category.valueOf(category), ApplicationSort.NAME, null,
+                null, 100);
+        Assertions.assertFalse(page.applications().isEmpty());
+    }
+
+    @Test
+    void findPage_tools_summariesMatchEntities() {
+        ApplicationPage page = applicationService.findPage(Category.TOOLS, ApplicationSort.NAME, null, null, 100);
+        List<Application> apps = applicationRepository.findAll().stream()
+                .filter(app -> app.getCategory() == Category.TOOLS).toList();
+
+        Assertions.assertEquals(apps.size(), page.applications().size());
+        Assertions.assertNull(page.previousCursor());
+        Assertions.assertNull(page.nextCursor());
+        for (ApplicationSummary summary : page.applications()) {
+            Application app = applicationService.findById(summary.id());
+            Assertions.assertEquals(Category.TOOLS, summary.category());
+            Assertions.assertEquals(app.getName(), summary.name());
+            Assertions.assertEquals(app.getRatingCount(), summary.ratingCount());
+            Assertions.assertEquals(app.getAverageRating(),
+                    applicationService.getDTOFromSummary(summary).rating());
+        }
+    }
+
+    @Test
+    void categoryPage_unknownSort_defaultSort() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        MvcResult result = mockMvc.perform(get("/applications/health").param("sort", "downlods")).andReturn();
+
+        Assertions.assertEquals(200, result.getResponse().getStatus());
+        Assertions.assertEquals("name", result.getModelAndView().getModel().get("sort"));
+        Assertions.assertEquals("downloads", mockMvc.perform(get("/applications/health").param("sort", "Downloads"))
+                .andReturn().getModelAndView().getModel().get("sort"));
+    }
+
+    @Test
+    void findPage_allSorts_cursorsWalkWholeCategory() {
+        for (ApplicationSort sort : ApplicationSort.values()) {
+            List<Long> expected = applicationService.findPage(Category.HEALTH, sort, null, null, 100)
+                    .applications().stream().map(ApplicationSummary::id).toList();
+            Assertions.assertTrue(expected.size() > 2);
+
+            List<Long> forward = new ArrayList<>();
+            ApplicationPage page = applicationService.findPage(Category.HEALTH, sort, null, null, 1);
+            forward.add(page.applications().get(0).id());
+            while (page.nextCursor() != null) {
+                page = applicationService.findPage(Category.HEALTH, sort, page.nextCursor(), null, 1);
+                page.applications().forEach(app -> forward.add(app.id()));
+            }
+            Assertions.assertEquals(expected, forward, sort.name());
+
+            List<Long> backward = new ArrayList<>();
+            backward.add(page.applications().get(0).id());
+            while (page.previousCursor() != null) {
+                page = applicationService.findPage(Category.HEALTH, sort, null, page.previousCursor(), 1);
+                backward.add(0, page.applications().get(0).id());
+            }
+            Assertions.assertEquals(expected, backward, sort.name());
+        }
+    }
+
+    @Test
+    void findPage_downloadsSort_orderedByDownloadCount() {
+        List<ApplicationSummary> apps = applicationService.findPage(Category.HEALTH, ApplicationSort.DOWNLOADS,
+                null, null, 100).applications();
+        for (int i = 1; i < apps.size(); i++) {
+            Assertions.assertTrue(apps.get(i - 1).downloadCount() >= apps.get(i).downloadCount());
+        }
+    }
+
+    @Test
+    void findPage_invalidCursor_firstPage() {
+        ApplicationPage page = applicationService.findPage(Category.HEALTH, ApplicationSort.NAME, "not-a-cursor",
+                null, 1);
+        Assertions.assertNull(page.previousCursor());
+        Assertions.assertEquals(1, page.applications().size());
+    }
+
+    @Test
+    void findSummaryById_invalidId_exception() {
+        Assertions.assertThrows(RuntimeException.class, () -> applicationService.findSummaryById(-1L));
+    }
+
+    @Test
+    void addRating_newThenUpdated_aggregatesMaintained() {
+        long appId = 2L;
+        RatingAggregates before = ratingAggregateRepository.findAggregates(appId);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user2", null, List.of()));
+        try {
+            applicationService.addRating(new RatingRequest(appId, 2));
+            RatingAggregates added = ratingAggregateRepository.findAggregates(appId);
+            Assertions.assertEquals(before.count() + 1, added.count());
+            Assertions.assertEquals(before.sum() + 2, added.sum());
+            Assertions.assertEquals(before.histogram().get(1) + 1, added.histogram().get(1));
+
+            applicationService.addRating(new RatingRequest(appId, 5));
+            RatingAggregates updated = ratingAggregateRepository.findAggregates(appId);
+            Assertions.assertEquals(added.count(), updated.count());
+            Assertions.assertEquals(added.sum() + 3, updated.sum());
+            Assertions.assertEquals(before.histogram().get(1), updated.histogram().get(1));
+            Assertions.assertEquals(added.histogram().get(4) + 1, updated.histogram().get(4));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        Assertions.assertTrue(ratingAggregateRepository.findDrift().isEmpty());
+    }
+
+    @Test
+    void addRating_concurrentReRates_aggregatesMaintained() throws Exception {
+        long appId = 4L;
+        List<Callable<Void>> reRates = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            int rating = 1 + i % 5;
+            reRates.add(() -> {
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken("developer2", null, List.of()));
+                try {
+                    applicationService.addRating(new RatingRequest(appId, rating));
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            });
+        }
+        reRates.get(0).call();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (Future<Void> future : executor.invokeAll(reRates)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(ratingAggregateRepository.findDrift().isEmpty());
+    }
+
+    @Test
+    void reconcile_driftedAggregates_reportedAndCorrected() {
+        long appId = 3L;
+        RatingAggregates expected = ratingAggregateRepository.findAggregates(appId);
+        jdbcTemplate.update("UPDATE applications SET ratingSum = ratingSum + 7, rating1Count = 3 WHERE id = ?", appId);
+
+        List<RatingDrift> drift = ratingReconciliationJob.reconcile();
+
+        Assertions.assertEquals(1, drift.size());
+        Assertions.assertEquals(appId, drift.get(0).applicationId());
+        Assertions.assertEquals(expected, drift.get(0).actual());
+        Assertions.assertEquals(expected, ratingAggregateRepository.findAggregates(appId));
     }
 
     @Test
@@ -67,10 +349,8 @@ class ApplicationTest {
         String appName = "Empty sample";
         String appArchiveName = "empty.zip";
 
-        try (FileInputStream fis = new FileInputStream(fileSource)) {
-            byte[] fileContent = fis.readAllBytes();
-            Map<String, byte[]> entryMap = archiveInspector.getContentMap(fileContent);
-            Assertions.assertTrue(archiveInspector.isArchiveValid(entryMap, appName, appArchiveName));
+        try {
+            Assertions.assertTrue(archiveInspector.inspect(Path.of(fileSource)).matches(appName, appArchiveName));
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -78,14 +358,175 @@ class ApplicationTest {
 
     @Test
     void defaultPictureTest() {
-        try {
-            byte[] smallImage = archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_128_NAME);
-            byte[] bigImage = archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_512_NAME);
-            Assertions.assertTrue(smallImage.length < bigImage.length);
+        byte[] smallImage = archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_128_NAME);
+        byte[] bigImage = archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_512_NAME);
+        Assertions.assertTrue(smallImage.length < bigImage.length);
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    @Test
+    void inspect_referencedImage_onlyReferencedImageRead() throws IOException {
+        byte[] image = {1, 2, 3};
+        Path archive = zip(Map.of("logo.jpg", image, "other.jpg", new byte[]{4}, "app.txt",
+                "name: Sample\npackage: sample.zip\npicture_128: logo.jpg\n".getBytes(StandardCharsets.UTF_8)));
+
+        InspectedArchive inspectedArchive = archiveInspector.inspect(archive);
+
+        Assertions.assertTrue(inspectedArchive.matches("Sample", "sample.zip"));
+        Assertions.assertArrayEquals(image, inspectedArchive.pictureSmall());
+        Assertions.assertSame(archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_512_NAME),
+                inspectedArchive.pictureBig());
+    }
+
+    @Test
+    void inspect_zipBomb_rejected() throws IOException {
+        Path archive = zip(Map.of("app.txt", "name: Bomb\npackage: bomb.zip\n".getBytes(StandardCharsets.UTF_8),
+                "zeros.bin", new byte[64 * 1024 * 1024]));
+
+        ArchiveProcessingException exception = Assertions.assertThrows(ArchiveProcessingException.class,
+                () -> archiveInspector.inspect(archive));
+        Assertions.assertTrue(exception.getMessage().contains("compression ratio"));
+    }
+
+    @Test
+    void save_uploadedArchive_streamedAndFileDeleted() throws IOException {
+        Path archive = zip(Map.of("upload.txt", "name: Upload sample\npackage: upload.zip\n"
+                .getBytes(StandardCharsets.UTF_8)));
+        long archiveSize = Files.size(archive);
+        ApplicationRequest appRequest = new ApplicationRequest();
+        appRequest.setName("Upload sample");
+        appRequest.setCategory("tools");
+        appRequest.setDescription("Upload sample description");
+        User developer = userService.findByUsername("developer1").orElseThrow();
+
+        Application application = applicationService.getEntityFromDTO(appRequest, "upload.zip", archive, developer);
+        Application savedApplication = applicationService.save(application);
+
+        Assertions.assertFalse(Files.exists(archive));
+        Assertions.assertNull(savedApplication.getArchiveFile());
+        Assertions.assertEquals(archiveSize, applicationService.getArchiveSize(savedApplication.getId()));
+    }
+
+    @Test
+    void save_appsWithoutLogos_defaultPicturesShared() throws IOException {
+        Application first = saveUpload("Default logo sample", "default-logo.zip");
+        BlobStorageReport firstReport = blobRepository.getStorageReport();
+        Application second = saveUpload("Other default logo sample", "other-default-logo.zip");
+        BlobStorageReport secondReport = blobRepository.getStorageReport();
+
+        Assertions.assertEquals(first.getPictureSmallHash(), second.getPictureSmallHash());
+        Assertions.assertEquals(first.getPictureBigHash(), second.getPictureBigHash());
+        Assertions.assertTrue(blobRepository.getReferenceCount(second.getPictureBigHash()) >= 2);
+        long picturesSize = archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_128_NAME).length
+                + archiveInspector.getDefaultImageByName(ArchiveInspector.PICTURE_512_NAME).length;
+        for (int size : ImageProcessor.getVariantSizes()) {
+            ApplicationImage firstImage = imageRepository.findImage(first.getId(), size).orElseThrow();
+            ApplicationImage secondImage = imageRepository.findImage(second.getId(), size).orElseThrow();
+            Assertions.assertEquals(firstImage.hash(), secondImage.hash());
+            Assertions.assertTrue(blobRepository.getReferenceCount(secondImage.hash()) >= 2);
+            picturesSize += secondImage.content().length;
+        }
+        Assertions.assertEquals(firstReport.savedBytes() + picturesSize, secondReport.savedBytes());
+    }
+
+    @Test
+    void blobArchiveStore_sameArchiveTwice_storedOnceAndReleased() throws IOException {
+        byte[] content = Files.readAllBytes(Path.of("src/main/resources/app-archive/upload/circle.zip"));
+        long first = saveUpload("Blob archive sample", "blob-archive.zip").getId();
+        long second = saveUpload("Other blob archive sample", "other-blob-archive.zip").getId();
+
+        blobArchiveStore.save(first, new ByteArrayInputStream(content));
+        blobArchiveStore.save(second, new ByteArrayInputStream(content));
+        String hash = blobArchiveStore.getHash(first);
+        Assertions.assertEquals(hash, blobArchiveStore.getHash(second));
+        Assertions.assertEquals(2, blobRepository.getReferenceCount(hash));
+        Assertions.assertEquals(content.length, blobArchiveStore.getSize(second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        blobArchiveStore.copyTo(second, 0, -1, out);
+        Assertions.assertArrayEquals(content, out.toByteArray());
+
+        blobArchiveStore.save(first, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Assertions.assertEquals(1, blobRepository.getReferenceCount(hash));
+        blobArchiveStore.save(second, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Assertions.assertEquals(0, blobRepository.getReferenceCount(hash));
+    }
+
+    @Test
+    void fileSystemArchiveStore_replacedArchive_fileDeletedWithLastReference() throws IOException {
+        FileSystemArchiveStore archiveStore = (FileSystemArchiveStore) this.archiveStore;
+        byte[] content = ("shared " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        long first = saveUpload("Shared file sample", "shared-file.zip").getId();
+        long second = saveUpload("Other shared file sample", "other-shared-file.zip").getId();
+        Path uploadedFile = archiveStore.getPath(first).orElseThrow();
+
+        archiveStore.save(first, new ByteArrayInputStream(content));
+        archiveStore.save(second, new ByteArrayInputStream(content));
+        Path sharedFile = archiveStore.getPath(first).orElseThrow();
+        Assertions.assertEquals(sharedFile, archiveStore.getPath(second).orElseThrow());
+        Assertions.assertFalse(Files.exists(uploadedFile));
+
+        archiveStore.save(first, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Assertions.assertTrue(Files.exists(sharedFile));
+        archiveStore.save(second, new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        Assertions.assertFalse(Files.exists(sharedFile));
+    }
+
+    @Test
+    void fileSystemArchiveStore_rolledBack_writtenFileDeleted() throws IOException {
+        FileSystemArchiveStore archiveStore = (FileSystemArchiveStore) this.archiveStore;
+        long id = saveUpload("Rolled back file sample", "rolled-back-file.zip").getId();
+        Path storedFile = archiveStore.getPath(id).orElseThrow();
+
+        Path writtenFile = new TransactionTemplate(transactionManager).execute(status -> {
+            try {
+                archiveStore.save(id, new ByteArrayInputStream(("rolled back " + UUID.randomUUID())
+                        .getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            status.setRollbackOnly();
+            return archiveStore.getPath(id).orElseThrow();
+        });
+
+        Assertions.assertNotEquals(storedFile, writtenFile);
+        Assertions.assertFalse(Files.exists(writtenFile));
+        Assertions.assertEquals(storedFile, archiveStore.getPath(id).orElseThrow());
+        Assertions.assertTrue(Files.exists(storedFile));
+    }
+
+    @Test
+    void removeUnreferencedFiles_orphanedFile_deleted() throws IOException {
+        FileSystemArchiveStore archiveStore = (FileSystemArchiveStore) this.archiveStore;
+        Path orphanedFile = Files.createDirectories(archiveStore.getDirectory().resolve("00"))
+                .resolve("00orphaned.zip");
+        Files.write(orphanedFile, new byte[]{1, 2, 3});
+
+        Assertions.assertEquals(1, archiveStore.removeUnreferencedFiles());
+        Assertions.assertFalse(Files.exists(orphanedFile));
+        Assertions.assertTrue(archiveStore.findMissingFiles().isEmpty());
+    }
+
+    private Application saveUpload(String name, String archiveName) throws IOException {
+        Path archive = zip(Map.of("app.txt", ("name: " + name + "\npackage: " + archiveName + "\n")
+                .getBytes(StandardCharsets.UTF_8)));
+        ApplicationRequest appRequest = new ApplicationRequest();
+        appRequest.setName(name);
+        appRequest.setCategory("tools");
+        appRequest.setDescription(name + " description");
+        User developer = userService.findByUsername("developer1").orElseThrow();
+        return applicationService.save(applicationService.getEntityFromDTO(appRequest, archiveName, archive, developer));
+    }
+
+    private static Path zip(Map<String, byte[]> entries) throws IOException {
+        Path archive = Files.createTempFile("inspected", ".zip");
+        archive.toFile().deleteOnExit();
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (Map.Entry<String, byte[]> entry : new TreeMap<>(entries).entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                zos.write(entry.getValue());
+                zos.closeEntry();
+            }
         }
+        return archive;
     }
 
     @Test
@@ -0,0 +1,81 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationImage;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class CacheTest {
+
+    @Autowired
+    CaffeineCacheManager cacheManager;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Test
+    void getCategories_cached_hitExported() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("mobsoftstore:type=Cache,name=categories");
+        applicationService.getCategories();
+        long hits = (Long) server.getAttribute(name, "HitCount");
+
+        applicationService.getCategories();
+
+        Assertions.assertEquals(hits + 1, (Long) server.getAttribute(name, "HitCount"));
+        Assertions.assertTrue((Double) server.getAttribute(name, "HitRate") > 0);
+    }
+
+    @Test
+    void appImage_overMaxWeight_evictedByBytes() {
+        Cache<Object, Object> cache = getNativeCache("appImage");
+        Policy.Eviction<Object, Object> eviction = cache.policy().eviction().orElseThrow();
+        Assertions.assertTrue(eviction.isWeighted());
+        long evictions = cache.stats().evictionWeight();
+
+        int imageSize = (int) (eviction.getMaximum() / 3);
+        for (int i = 0; i < 4; i++) {
+            cacheManager.getCache("appImage").put(new SimpleKey(-1L, i),
+                    new ApplicationImage(new byte[imageSize], "image/png", "hash"));
+        }
+        cache.cleanUp();
+
+        Assertions.assertTrue(eviction.weightedSize().orElseThrow() <= eviction.getMaximum());
+        Assertions.assertTrue(cache.stats().evictionWeight() - evictions >= imageSize);
+    }
+
+    @Test
+    void caches_configured_boundedWithTimeToLive() {
+        Cache<Object, Object> categories = getNativeCache("categories");
+        Assertions.assertEquals(16, categories.policy().eviction().orElseThrow().getMaximum());
+        Assertions.assertEquals(Duration.ofDays(1),
+                categories.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+
+        Cache<Object, Object> other = getNativeCache("other");
+        Assertions.assertEquals(1000, other.policy().eviction().orElseThrow().getMaximum());
+        Assertions.assertTrue(other.policy().isRecordingStats());
+    }
+
+    private Cache<Object, Object> getNativeCache(String name) {
+        return ((CaffeineCache) cacheManager.getCache(name)).getNativeCache();
+    }
+}
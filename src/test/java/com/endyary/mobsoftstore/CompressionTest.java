@@ -0,0 +1,191 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.config.CompressionFilter;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.DelegatingServletOutputStream;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class CompressionTest {
+
+    private static final Pattern SCRIPT_URL = Pattern.compile("/static/app-[0-9a-f]{32}\\.js");
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    CompressionFilter compressionFilter;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // The filters registered by WebAppInitializer
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilters(compressionFilter, new ResourceUrlEncodingFilter()).build();
+    }
+
+    @Test
+    void homePage_gzipAccepted_compressed() throws Exception {
+        MockHttpServletResponse plain = mockMvc.perform(get("/")).andReturn().getResponse();
+        MockHttpServletResponse compressed = mockMvc.perform(get("/")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn().getResponse();
+
+        Assertions.assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("gzip", compressed.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, compressed.getHeader(HttpHeaders.VARY));
+        Assertions.assertEquals(plain.getContentAsString(), new String(gunzip(compressed.getContentAsByteArray()),
+                StandardCharsets.UTF_8));
+        Assertions.assertTrue(compressed.getContentAsByteArray().length < plain.getContentAsByteArray().length / 2);
+    }
+
+    @Test
+    void homePage_gzipRejected_notCompressed() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")).andReturn().getResponse();
+
+        Assertions.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        Assertions.assertTrue(response.getContentAsString().contains("</html>"));
+    }
+
+    @Test
+    void smallResponse_gzipAccepted_notCompressed() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/suggest").param("prefix", "zzz")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+
+        Assertions.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    void image_gzipAccepted_passedThrough() throws Exception {
+        MockHttpServletResponse plain = mockMvc.perform(get("/images/2/512")).andReturn().getResponse();
+        MockHttpServletResponse response = mockMvc.perform(get("/images/2/512")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+
+        Assertions.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertArrayEquals(plain.getContentAsByteArray(), response.getContentAsByteArray());
+    }
+
+    @Test
+    void staticResource_fingerprintedUrl_cachedLongTerm() throws Exception {
+        String page = mockMvc.perform(get("/")).andReturn().getResponse().getContentAsString();
+        Matcher matcher = SCRIPT_URL.matcher(page);
+        Assertions.assertTrue(matcher.find(), "Script link is not fingerprinted");
+
+        MockHttpServletResponse response = mockMvc.perform(get(matcher.group())
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("max-age=31536000, public", response.getHeader(HttpHeaders.CACHE_CONTROL));
+        Assertions.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertArrayEquals(Files.readAllBytes(Path.of("src/main/webapp/static/app.js")),
+                gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void detailsPage_gzipAccepted_eTagOfEncoding() throws Exception {
+        String plainETag = mockMvc.perform(get("/details/3")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        MockHttpServletResponse compressed = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andReturn().getResponse();
+        String eTag = compressed.getHeader(HttpHeaders.ETAG);
+
+        Assertions.assertEquals("gzip", compressed.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals(plainETag.substring(0, plainETag.length() - 1) + "-gzip\"", eTag);
+
+        MockHttpServletResponse notModified = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+        Assertions.assertEquals(304, notModified.getStatus());
+        Assertions.assertEquals(eTag, notModified.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse identity = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.IF_NONE_MATCH, plainETag)).andReturn().getResponse();
+        Assertions.assertEquals(304, identity.getStatus());
+        Assertions.assertEquals(plainETag, identity.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void outputStream_writeListener_forwardedToResponse() throws Exception {
+        List<WriteListener> listeners = new ArrayList<>();
+        MockHttpServletResponse mockResponse = new MockHttpServletResponse();
+        ServletOutputStream responseStream = new DelegatingServletOutputStream(mockResponse.getOutputStream()) {
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                listeners.add(writeListener);
+            }
+        };
+        HttpServletResponse response = new HttpServletResponseWrapper(mockResponse) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return responseStream;
+            }
+        };
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+
+        compressionFilter.doFilter(new MockHttpServletRequest(), response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("text/html");
+                ServletOutputStream outputStream = resp.getOutputStream();
+                outputStream.setWriteListener(listener);
+                Assertions.assertTrue(outputStream.isReady());
+                outputStream.write("<html></html>".getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+
+        Assertions.assertEquals(List.of(listener), listeners);
+        Assertions.assertEquals("<html></html>", mockResponse.getContentAsString());
+    }
+
+    private static byte[] gunzip(byte[] content) throws IOException {
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return is.readAllBytes();
+        }
+    }
+}
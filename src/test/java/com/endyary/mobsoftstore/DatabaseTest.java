@@ -0,0 +1,87 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.config.PersistenceJpaConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.FileSystemResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+class DatabaseTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fileDb_restarted_keptAndNotSeededAgain() {
+        Path dbFile = directory.resolve("storedb");
+        try (AnnotationConfigWebApplicationContext context = start(dbFile)) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Assertions.assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+            jdbcTemplate.update("INSERT INTO users (username, password, role) VALUES ('kept', 'x', 'USER')");
+        }
+        Assertions.assertTrue(Files.exists(directory.resolve("storedb.mv.db")));
+
+        try (AnnotationConfigWebApplicationContext context = start(dbFile)) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Assertions.assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+            Assertions.assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM applications",
+                    Integer.class));
+        }
+    }
+
+    @Test
+    void fileDb_archiveFileMissing_startupFails() throws IOException {
+        Path dbFile = directory.resolve("storedb");
+        Path archiveFile;
+        try (AnnotationConfigWebApplicationContext context = start(dbFile)) {
+            archiveFile = context.getBean(ApplicationService.class).getArchivePath(1L).orElseThrow();
+        }
+        Assertions.assertTrue(archiveFile.startsWith(directory.resolve("archives")));
+
+        Files.delete(archiveFile);
+        BeanCreationException e = Assertions.assertThrows(BeanCreationException.class, () -> start(dbFile).close());
+        Assertions.assertTrue(e.getMessage().contains("missing"), e.getMessage());
+    }
+
+    @Test
+    void dataSource_configured_pooled() {
+        try (AnnotationConfigWebApplicationContext context = start(directory.resolve("storedb"))) {
+            HikariDataSource dataSource = (HikariDataSource) context.getBean(DataSource.class);
+            Assertions.assertEquals(3, dataSource.getMaximumPoolSize());
+            Assertions.assertEquals(60000, dataSource.getLeakDetectionThreshold());
+            Assertions.assertTrue(dataSource.getJdbcUrl().contains("CACHE_SIZE=8192"));
+        }
+    }
+
+    static AnnotationConfigWebApplicationContext start(Path dbFile) {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext("src/main/webapp", new FileSystemResourceLoader()));
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("db", Map.of(
+                "db.mode", PersistenceJpaConfig.FILE_DB,
+                "db.file.path", dbFile.toString(),
+                "db.file.cache-size", "8192",
+                "db.pool.max-size", "3",
+                "db.pool.leak-detection-threshold", "60000")));
+        context.register(MvcConfig.class);
+        // The cache statistics beans stay exported by the context shared by the other tests
+        context.addBeanFactoryPostProcessor(beanFactory ->
+                ((BeanDefinitionRegistry) beanFactory).removeBeanDefinition("cacheMetricsExporter"));
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,115 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.rating.RatingRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class DetailsTest {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getById_ifNoneMatch_notModified() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/details/3")).andReturn().getResponse();
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertNotNull(eTag);
+        Assertions.assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+        Assertions.assertEquals("no-cache, private", response.getHeader(HttpHeaders.CACHE_CONTROL));
+
+        MockHttpServletResponse notModified = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+        Assertions.assertEquals(304, notModified.getStatus());
+        Assertions.assertEquals(0, notModified.getContentLength());
+    }
+
+    @Test
+    void getById_ifModifiedSince_notModified() throws Exception {
+        String lastModified = mockMvc.perform(get("/details/3")).andReturn().getResponse()
+                .getHeader(HttpHeaders.LAST_MODIFIED);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified)).andReturn().getResponse();
+        Assertions.assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void getById_ratingAdded_modified() throws Exception {
+        authenticate("user1", "USER");
+        String eTag = mockMvc.perform(get("/details/4")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        applicationService.addRating(new RatingRequest(4L, 1));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/details/4")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertNotEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void getById_applicationEdited_versionIncreased() {
+        long version = applicationService.findVersion(5L).version();
+
+        applicationService.save(applicationService.findById(5L));
+
+        Assertions.assertEquals(version + 1, applicationService.findVersion(5L).version());
+    }
+
+    @Test
+    void getById_otherUser_modified() throws Exception {
+        String anonymousETag = mockMvc.perform(get("/details/3")).andReturn().getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        authenticate("developer1", "DEVELOPER");
+        MockHttpServletResponse response = mockMvc.perform(get("/details/3")
+                .header(HttpHeaders.IF_NONE_MATCH, anonymousETag)).andReturn().getResponse();
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertTrue(response.getContentAsString().contains("developer1"));
+    }
+
+    private static void authenticate(String username, String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null,
+                List.of(new SimpleGrantedAuthority(role))));
+    }
+}
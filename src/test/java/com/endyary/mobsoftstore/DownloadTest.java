@@ -0,0 +1,188 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.DownloadCounter;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class DownloadTest {
+
+    private static final String ARCHIVE_SOURCE = "src/main/resources/app-archive/insert/tooth/tooth.zip";
+
+    private static final long APP_ID = 8L;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    DownloadCounter downloadCounter;
+
+    MockMvc mockMvc;
+
+    byte[] archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        try (FileInputStream fis = new FileInputStream(ARCHIVE_SOURCE)) {
+            archive = fis.readAllBytes();
+        }
+    }
+
+    @Test
+    void download_noRange_fullArchiveWithETag() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/download/" + APP_ID)).andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        Assertions.assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertArrayEquals(archive, response.getContentAsByteArray());
+    }
+
+    @Test
+    void download_severalRanges_reassembledArchiveMatches() throws Exception {
+        String eTag = mockMvc.perform(get("/download/" + APP_ID)).andReturn().getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        long chunk = archive.length / 3;
+        String[] ranges = {"bytes=0-" + (chunk - 1), "bytes=" + chunk + "-" + (2 * chunk - 1), "bytes=" + 2 * chunk + "-"};
+
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+        for (String range : ranges) {
+            MockHttpServletResponse response = mockMvc.perform(get("/download/" + APP_ID)
+                    .header(HttpHeaders.RANGE, range)
+                    .header(HttpHeaders.IF_RANGE, eTag)).andReturn().getResponse();
+            Assertions.assertEquals(206, response.getStatus());
+            Assertions.assertEquals(eTag, response.getHeader(HttpHeaders.ETAG));
+            reassembled.write(response.getContentAsByteArray());
+        }
+        Assertions.assertArrayEquals(archive, reassembled.toByteArray());
+    }
+
+    @Test
+    void download_multipleRanges_multipartResponse() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/download/" + APP_ID)
+                .header(HttpHeaders.RANGE, "bytes=0-9,20-29")).andReturn().getResponse();
+
+        Assertions.assertEquals(206, response.getStatus());
+        Assertions.assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String content = response.getContentAsString();
+        Assertions.assertTrue(content.contains("Content-Range: bytes 0-9/" + archive.length));
+        Assertions.assertTrue(content.contains("Content-Range: bytes 20-29/" + archive.length));
+    }
+
+    @Test
+    void download_staleIfRange_fullArchive() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/download/" + APP_ID)
+                .header(HttpHeaders.RANGE, "bytes=100-")
+                .header(HttpHeaders.IF_RANGE, "\"stale\"")).andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertArrayEquals(archive, response.getContentAsByteArray());
+    }
+
+    @Test
+    void download_unsatisfiableRange_rangeNotSatisfiable() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/download/" + APP_ID)
+                .header(HttpHeaders.RANGE, "bytes=" + archive.length + "-")).andReturn().getResponse();
+
+        Assertions.assertEquals(416, response.getStatus());
+        Assertions.assertEquals("bytes */" + archive.length, response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void download_resumedRange_countedOnce() throws Exception {
+        downloadCounter.flush();
+        int before = applicationService.findById(APP_ID).getDownloadCount();
+        mockMvc.perform(get("/download/" + APP_ID).header(HttpHeaders.RANGE, "bytes=0-99"));
+        mockMvc.perform(get("/download/" + APP_ID).header(HttpHeaders.RANGE, "bytes=100-"));
+        downloadCounter.flush();
+
+        Assertions.assertEquals(before + 1, applicationService.findById(APP_ID).getDownloadCount());
+    }
+
+    @Test
+    void download_head_headersOnlyNotCounted() throws Exception {
+        downloadCounter.flush();
+        int before = applicationService.findById(APP_ID).getDownloadCount();
+        MockHttpServletResponse response = mockMvc.perform(head("/download/" + APP_ID)).andReturn().getResponse();
+        mockMvc.perform(head("/download/" + APP_ID).header(HttpHeaders.RANGE, "bytes=0-99"));
+        downloadCounter.flush();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(archive.length, response.getContentLengthLong());
+        Assertions.assertEquals(0, response.getContentAsByteArray().length);
+        Assertions.assertEquals(before, applicationService.findById(APP_ID).getDownloadCount());
+    }
+
+    @Test
+    void increaseDownloadCount_parallelDownloads_noLostIncrements() throws Exception {
+        int threads = 16;
+        int downloadsPerThread = 5000;
+        Application app = applicationService.findById(APP_ID);
+        downloadCounter.flush();
+        int before = applicationService.findById(APP_ID).getDownloadCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> downloads = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            downloads.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < downloadsPerThread; j++) {
+                    applicationService.increaseDownloadCount(app);
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            while (running.get()) {
+                downloadCounter.flush();
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> download : downloads) {
+            download.get(1, TimeUnit.MINUTES);
+        }
+        running.set(false);
+        flusher.get(1, TimeUnit.MINUTES);
+        executor.shutdown();
+        downloadCounter.flush();
+
+        Assertions.assertEquals(before + threads * downloadsPerThread,
+                applicationService.findById(APP_ID).getDownloadCount());
+    }
+}
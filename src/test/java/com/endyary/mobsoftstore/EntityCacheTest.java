@@ -0,0 +1,149 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.application.ApplicationRepository;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.DownloadCounter;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.rating.RatingRequest;
+import com.endyary.mobsoftstore.user.User;
+import com.endyary.mobsoftstore.user.UserRepository;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.cache.CacheManager;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.Attribute;
+import java.lang.management.ManagementFactory;
+import java.sql.Blob;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class EntityCacheTest {
+
+    private static final int LOOKUPS = 10;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ApplicationRepository applicationRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    DownloadCounter downloadCounter;
+
+    @Autowired
+    CacheManager hibernateCacheManager;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void findById_repeated_servedFromCache() {
+        for (int i = 0; i < LOOKUPS; i++) {
+            applicationRepository.findById(3L).orElseThrow();
+        }
+
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(Application.CACHE_REGION);
+        Assertions.assertEquals(1, region.getMissCount());
+        Assertions.assertEquals(LOOKUPS - 1, region.getHitCount());
+        Assertions.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findByUsername_repeated_servedFromQueryCache() {
+        for (int i = 0; i < LOOKUPS; i++) {
+            userRepository.findByUsername("developer2").orElseThrow();
+        }
+
+        Assertions.assertEquals(1, statistics.getQueryCacheMissCount());
+        Assertions.assertEquals(LOOKUPS - 1, statistics.getQueryCacheHitCount());
+        CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(User.CACHE_REGION);
+        Assertions.assertEquals(LOOKUPS - 1, region.getHitCount());
+        Assertions.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findById_ratingAdded_evictedAndReloaded() {
+        int ratingCount = applicationRepository.findById(9L).orElseThrow().getRatingCount();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("developer1", null, List.of()));
+
+        applicationService.addRating(new RatingRequest(9L, 3));
+
+        Assertions.assertEquals(ratingCount + 1, applicationRepository.findById(9L).orElseThrow().getRatingCount());
+        Assertions.assertEquals(2, statistics.getDomainDataRegionStatistics(Application.CACHE_REGION)
+                .getMissCount());
+    }
+
+    @Test
+    void findById_downloadsFlushed_evictedAndReloaded() {
+        downloadCounter.flush();
+        Application app = applicationRepository.findById(10L).orElseThrow();
+
+        applicationService.increaseDownloadCount(app);
+        downloadCounter.flush();
+
+        Assertions.assertEquals(app.getDownloadCount() + 1,
+                applicationRepository.findById(10L).orElseThrow().getDownloadCount());
+    }
+
+    @Test
+    void regions_configured_boundedByCaffeineWithStatistics() throws Exception {
+        CaffeineConfiguration<?, ?> configuration = hibernateCacheManager.getCache(User.CACHE_REGION)
+                .getConfiguration(CaffeineConfiguration.class);
+        Assertions.assertEquals(1000, configuration.getMaximumSize().orElseThrow());
+        Assertions.assertTrue(configuration.isStatisticsEnabled());
+
+        userRepository.findByUsername("user1").orElseThrow();
+        ObjectName name = new ObjectName("javax.cache:type=CacheStatistics,CacheManager="
+                + hibernateCacheManager.getURI().toString().replaceAll("[,:=\n]", ".") + ",Cache=" + User.CACHE_REGION);
+        Assertions.assertTrue((Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CachePuts") > 0);
+    }
+
+    @Test
+    void cachedEntities_noBlobAttributes() {
+        for (Class<?> entity : List.of(Application.class, User.class)) {
+            for (Attribute<?, ?> attribute : entityManagerFactory.getMetamodel().entity(entity).getAttributes()) {
+                Class<?> type = attribute.getJavaType();
+                Assertions.assertFalse(type == byte[].class || Blob.class.isAssignableFrom(type),
+                        entity.getSimpleName() + "." + attribute.getName() + " is a BLOB");
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.DownloadLeaderboard;
+import com.endyary.mobsoftstore.application.HeaderFragmentCache;
+import com.endyary.mobsoftstore.application.ImageProcessor;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JavaxServletWebApplication;
+
+import java.util.List;
+import java.util.Set;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class HeaderFragmentTest {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    HeaderFragmentCache headerFragmentCache;
+
+    @Autowired
+    ITemplateEngine templateEngine;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    DownloadLeaderboard downloadLeaderboard;
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getHeader_anonymous_sameAsRendered() {
+        assertSameAsRendered("<b>query</b>");
+    }
+
+    @Test
+    void getHeader_developers_sharedWithOwnName() {
+        authenticate("developer1", "DEVELOPER");
+        assertSameAsRendered(null);
+        String header = headerFragmentCache.getHeader(request(), new MockHttpServletResponse(), null);
+        Assertions.assertTrue(header.contains("developer1"));
+        Assertions.assertTrue(header.contains("/newapp"));
+
+        authenticate("developer<2>", "DEVELOPER");
+        assertSameAsRendered(null);
+        header = headerFragmentCache.getHeader(request(), new MockHttpServletResponse(), null);
+        Assertions.assertTrue(header.contains("developer&lt;2&gt;"));
+        Assertions.assertFalse(header.contains("developer1"));
+    }
+
+    @Test
+    void getHeader_user_noDeveloperLinks() {
+        authenticate("user1", "USER");
+        assertSameAsRendered(null);
+        Assertions.assertFalse(headerFragmentCache.getHeader(request(), new MockHttpServletResponse(), null)
+                .contains("/newapp"));
+    }
+
+    @Test
+    void getHeader_topDownloadsChanged_newLogoShown() {
+        String header = headerFragmentCache.getHeader(request(), new MockHttpServletResponse(), null);
+        List<Long> top = downloadLeaderboard.getTop(DownloadLeaderboard.TOP_SIZE);
+        long candidate = downloadLeaderboard.getTop(100).stream().filter(id -> !top.contains(id)).findFirst()
+                .orElseThrow();
+        String candidateLogo = applicationService.getImageUrl(candidate, ImageProcessor.SMALL_IMAGE_SIZE);
+        Assertions.assertFalse(header.contains(candidateLogo + "\""));
+
+        long missing = downloadLeaderboard.getDownloadCount(top.get(top.size() - 1))
+                - downloadLeaderboard.getDownloadCount(candidate) + 1;
+        Application app = applicationService.findById(candidate);
+        for (long i = 0; i < missing; i++) {
+            applicationService.increaseDownloadCount(app);
+        }
+
+        header = headerFragmentCache.getHeader(request(), new MockHttpServletResponse(), null);
+        Assertions.assertTrue(header.contains(candidateLogo + "\""));
+        assertSameAsRendered(null);
+    }
+
+    /**
+     * Compares the cached header with the header rendered by the template for the current request
+     */
+    private void assertSameAsRendered(String query) {
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        WebContext context = new WebContext(JavaxServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, response), request.getLocale());
+        context.setVariable("topLogos", downloadLeaderboard.getTop(DownloadLeaderboard.TOP_SIZE).stream()
+                .map(id -> applicationService.getImageUrl(id, ImageProcessor.SMALL_IMAGE_SIZE)).toList());
+        context.setVariable("query", query);
+        String rendered = templateEngine.process(HeaderFragmentCache.TEMPLATE, Set.of(HeaderFragmentCache.FRAGMENT),
+                context);
+
+        // The second call is served from the cache
+        headerFragmentCache.getHeader(request, response, query);
+        Assertions.assertEquals(rendered, headerFragmentCache.getHeader(request, response, query));
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest(webApplicationContext.getServletContext());
+        request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, webApplicationContext);
+        return request;
+    }
+
+    private static void authenticate(String username, String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null,
+                List.of(new SimpleGrantedAuthority(role))));
+    }
+}
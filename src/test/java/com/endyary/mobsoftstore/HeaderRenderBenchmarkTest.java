@@ -0,0 +1,107 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.HeaderFragmentCache;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.config.View;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JavaxServletWebApplication;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares the render time of the home page template with the cached header spliced in
+ * and with the header fragment rendered by the template.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class HeaderRenderBenchmarkTest {
+
+    private static final int ITERATIONS = 2000;
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    HeaderFragmentCache headerFragmentCache;
+
+    @Autowired
+    ITemplateEngine templateEngine;
+
+    @Test
+    void renderHomePage_cachedHeader_faster() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("developer1",
+                null, List.of(new SimpleGrantedAuthority("DEVELOPER"))));
+        try {
+            MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+            Map<String, Object> model = mockMvc.perform(get("/applications/tools")).andReturn()
+                    .getModelAndView().getModel();
+            Map<String, Object> uncachedModel = new HashMap<>(model);
+            uncachedModel.remove(HeaderFragmentCache.MODEL_ATTRIBUTE);
+
+            MockHttpServletRequest request = new MockHttpServletRequest(webApplicationContext.getServletContext());
+            request.setAttribute(DispatcherServlet.WEB_APPLICATION_CONTEXT_ATTRIBUTE, webApplicationContext);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            long uncached = median(() -> render(request, response, uncachedModel));
+            long cached = median(() -> {
+                Map<String, Object> cachedModel = new HashMap<>(uncachedModel);
+                cachedModel.put(HeaderFragmentCache.MODEL_ATTRIBUTE,
+                        headerFragmentCache.getHeader(request, response, null));
+                render(request, response, cachedModel);
+            });
+            System.out.printf("Home page render: %d us with the header rendered, %d us with the cached header%n",
+                    uncached / 1000, cached / 1000);
+
+            Assertions.assertTrue(cached < uncached,
+                    String.format("Cached header render took %d ns, uncached %d ns", cached, uncached));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void render(MockHttpServletRequest request, MockHttpServletResponse response, Map<String, Object> model) {
+        WebContext context = new WebContext(JavaxServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, response), request.getLocale(), model);
+        templateEngine.process(View.HOME.toString(), context);
+    }
+
+    private static long median(Runnable render) {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            render.run();
+        }
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            render.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ITERATIONS / 2];
+    }
+}
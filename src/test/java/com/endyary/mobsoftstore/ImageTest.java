@@ -0,0 +1,120 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationImage;
+import com.endyary.mobsoftstore.application.ArchiveProcessingException;
+import com.endyary.mobsoftstore.application.ImageProcessor;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class ImageTest {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    ImageProcessor imageProcessor;
+
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+    }
+
+    @Test
+    void getImage_validId_rawImageWithCacheHeaders() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/images/2/128")).andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertTrue(response.getContentType().startsWith("image/"));
+        Assertions.assertTrue(response.getHeader(HttpHeaders.CACHE_CONTROL).contains("max-age"));
+        Assertions.assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+        Assertions.assertEquals(128, Math.max(image.getWidth(), image.getHeight()));
+    }
+
+    @Test
+    void getImage_iconVariant_generatedAtStartup() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/images/2/64")).andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(response.getContentAsByteArray()));
+        Assertions.assertEquals(64, Math.max(image.getWidth(), image.getHeight()));
+    }
+
+    @Test
+    void createVariants_bigSource_resizedVariants() throws IOException {
+        byte[] source = encodePng(new BufferedImage(1024, 1024, BufferedImage.TYPE_INT_RGB));
+
+        Map<Integer, ApplicationImage> variants = imageProcessor.createVariants(source, source);
+
+        for (int size : ImageProcessor.getVariantSizes()) {
+            BufferedImage variant = ImageIO.read(new ByteArrayInputStream(variants.get(size).content()));
+            Assertions.assertEquals(size, variant.getWidth());
+            Assertions.assertEquals(size, variant.getHeight());
+        }
+    }
+
+    @Test
+    void createVariants_oversizedSource_throwArchiveProcessing() throws IOException {
+        byte[] source = encodePng(new BufferedImage(ImageProcessor.MAX_SOURCE_DIMENSION + 1, 1,
+                BufferedImage.TYPE_INT_RGB));
+
+        Assertions.assertThrows(ArchiveProcessingException.class, () -> imageProcessor.createVariants(source, source));
+    }
+
+    @Test
+    void getImage_matchingETag_notModified() throws Exception {
+        String eTag = mockMvc.perform(get("/images/1/512")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/images/1/512")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)).andReturn().getResponse();
+
+        Assertions.assertEquals(304, response.getStatus());
+        Assertions.assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void getImage_unknownSize_notFound() throws Exception {
+        Assertions.assertEquals(404, mockMvc.perform(get("/images/1/100")).andReturn().getResponse().getStatus());
+        Assertions.assertEquals(404, mockMvc.perform(get("/images/999/128")).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void categoryPage_imagesLinked_noDataUris() throws Exception {
+        String page = mockMvc.perform(get("/applications/health")).andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(page.contains("/images/1/64"));
+        Assertions.assertFalse(page.contains("data:image"));
+    }
+
+    private byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
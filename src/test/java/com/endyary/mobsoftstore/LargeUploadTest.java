@@ -0,0 +1,209 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationRequest;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.UploadJob;
+import com.endyary.mobsoftstore.application.UploadJobResponse;
+import com.endyary.mobsoftstore.application.UploadJobService;
+import com.endyary.mobsoftstore.application.UploadJobStatus;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.commons.CommonsMultipartResolver;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Uploads a {@value #ARCHIVE_SIZE_MB} MB archive through the multipart resolver and an upload job
+ * while the heap is capped well below the archive size.
+ * Run with {@code mvn test -Plarge-upload}, which limits the heap to 256 MB.
+ */
+@Tag("large-upload")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class LargeUploadTest {
+
+    private static final int ARCHIVE_SIZE_MB = 1024;
+
+    private static final String BOUNDARY = "large-upload-boundary";
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    UploadJobService uploadJobService;
+
+    @Autowired
+    CommonsMultipartResolver multipartResolver;
+
+    private Path archive;
+
+    @BeforeEach
+    void createArchive() throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        new Random(42).nextBytes(block);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < ARCHIVE_SIZE_MB; i++) {
+            crc.update(block);
+        }
+
+        archive = Files.createTempFile("large", ".zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zos.putNextEntry(new ZipEntry("large.txt"));
+            zos.write("name: Large upload\npackage: large.zip\n".getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+
+            // Stored, so writing the archive doesn't take long
+            ZipEntry payload = new ZipEntry("payload.bin");
+            payload.setMethod(ZipEntry.STORED);
+            payload.setSize((long) ARCHIVE_SIZE_MB * block.length);
+            payload.setCompressedSize(payload.getSize());
+            payload.setCrc(crc.getValue());
+            zos.putNextEntry(payload);
+            for (int i = 0; i < ARCHIVE_SIZE_MB; i++) {
+                zos.write(block);
+            }
+            zos.closeEntry();
+        }
+    }
+
+    @AfterEach
+    void deleteArchive() throws IOException {
+        Files.deleteIfExists(archive);
+    }
+
+    @Test
+    void addNewApp_archiveLargerThanHeap_storedWithoutHeapCopy() throws IOException, InterruptedException {
+        long archiveSize = Files.size(archive);
+        Assertions.assertTrue(Runtime.getRuntime().maxMemory() < archiveSize / 2,
+                "The heap has to be capped well below the archive size");
+
+        MultipartHttpServletRequest request = multipartResolver.resolveMultipart(new StreamedRequest(archive));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("developer1", null, List.of()));
+        Path storedArchive = null;
+        try {
+            MultipartFile file = request.getFile("archive");
+            Assertions.assertNotNull(file);
+            Assertions.assertFalse(file.isEmpty());
+
+            ApplicationRequest appRequest = new ApplicationRequest();
+            appRequest.setName("Large upload");
+            appRequest.setCategory("tools");
+            appRequest.setDescription("Large upload description");
+            UploadJob job = uploadJobService.submit(appRequest, file);
+
+            UploadJobResponse status = awaitFinished(job.id());
+            Assertions.assertEquals(UploadJobStatus.DONE, status.status(), status.message());
+            Assertions.assertEquals(archiveSize, applicationService.getArchiveSize(status.applicationId()));
+            storedArchive = applicationService.getArchivePath(status.applicationId()).orElse(null);
+        } finally {
+            SecurityContextHolder.clearContext();
+            multipartResolver.cleanupMultipart(request);
+            if (storedArchive != null) {
+                Files.deleteIfExists(storedArchive);
+            }
+        }
+    }
+
+    private UploadJobResponse awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 600; i++) {
+            UploadJobResponse job = uploadJobService.findStatus(jobId).orElseThrow();
+            if (job.status().isFinished()) {
+                return job;
+            }
+            Thread.sleep(500);
+        }
+        throw new AssertionError("Upload job " + jobId + " hasn't finished");
+    }
+
+    /**
+     * Multipart request whose body is streamed from the archive file, as a container would do
+     */
+    private static class StreamedRequest extends MockHttpServletRequest {
+
+        private final byte[] head = ("--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"archive\"; filename=\"large.zip\"\r\n" +
+                "Content-Type: application/zip\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        private final byte[] tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        private final Path archive;
+
+        StreamedRequest(Path archive) throws IOException {
+            super("POST", "/addnewapp");
+            this.archive = archive;
+            setContentType("multipart/form-data; boundary=" + BOUNDARY);
+            addHeader("Content-Length", head.length + Files.size(archive) + tail.length);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            InputStream body;
+            try {
+                body = new SequenceInputStream(new SequenceInputStream(new ByteArrayInputStream(head),
+                        Files.newInputStream(archive)), new ByteArrayInputStream(tail));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return body.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return body.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return false;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    body.close();
+                }
+            };
+        }
+    }
+}
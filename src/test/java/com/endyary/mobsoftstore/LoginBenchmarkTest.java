@@ -0,0 +1,102 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.user.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the throughput of a burst of logins of the seeded users authenticated with BCrypt
+ * on the request threads and on the bounded password verification executor with the verified-credential cache.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class LoginBenchmarkTest {
+
+    private static final String[] USERNAMES = {"developer1", "developer2", "user1", "user2"};
+
+    private static final int THREADS = 16;
+
+    private static final int LOGINS_PER_THREAD = 8;
+
+    @Autowired
+    AuthenticationManager authenticationManager;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    void loginBurst_pooledWithVerifiedCache_higherThroughput() throws Exception {
+        DaoAuthenticationProvider requestThreadProvider = new DaoAuthenticationProvider();
+        requestThreadProvider.setUserDetailsService(userService);
+        DelegatingPasswordEncoder requestThreadEncoder =
+                (DelegatingPasswordEncoder) PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        requestThreadEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        requestThreadProvider.setPasswordEncoder(requestThreadEncoder);
+
+        Result requestThreads = burst(new ProviderManager(requestThreadProvider));
+        Result pooled = burst(authenticationManager);
+        System.out.printf("Login burst of %d threads: %.0f logins/s on the request threads, " +
+                        "%.0f logins/s on the pool (%d rejected)%n",
+                THREADS, requestThreads.loginsPerSecond(), pooled.loginsPerSecond(), pooled.rejected());
+
+        Assertions.assertTrue(pooled.loginsPerSecond() > requestThreads.loginsPerSecond());
+    }
+
+    private static Result burst(AuthenticationManager manager) throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService requestThreads = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String username = USERNAMES[i % USERNAMES.length];
+                futures.add(requestThreads.submit(() -> {
+                    for (int j = 0; j < LOGINS_PER_THREAD; j++) {
+                        try {
+                            manager.authenticate(new UsernamePasswordAuthenticationToken(username, "password"));
+                            succeeded.incrementAndGet();
+                        } catch (AuthenticationServiceException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Result(succeeded.get() / seconds, rejected.get());
+        } finally {
+            requestThreads.shutdown();
+        }
+    }
+
+    private record Result(double loginsPerSecond, int rejected) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationPage;
+import com.endyary.mobsoftstore.application.ApplicationPageRepository;
+import com.endyary.mobsoftstore.application.ApplicationSort;
+import com.endyary.mobsoftstore.application.Category;
+import com.endyary.mobsoftstore.application.PageCursor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares reading the first and a deep page of a generated catalog of {@value #CATALOG_SIZE} applications
+ * with keyset pagination (and with OFFSET for reference).
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class PaginationBenchmarkTest {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    private static final int PAGE_SIZE = 20;
+
+    private static final int DEEP_POSITION = 99_000;
+
+    private static final int ITERATIONS = 200;
+
+    private static EmbeddedDatabase database;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static ApplicationPageRepository applicationPageRepository;
+
+    @BeforeAll
+    static void createCatalog() {
+        database = new EmbeddedDatabaseBuilder()
+                .setName("pagination-benchmark")
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        applicationPageRepository = new ApplicationPageRepository(jdbcTemplate);
+
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (1, 'developer', '', 'DEVELOPER')");
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            int ratingCount = random.nextInt(50);
+            batch.add(new Object[]{"App " + Integer.toHexString(random.nextInt()) + "-" + i, "Description " + i,
+                    random.nextInt(1_000_000), ratingCount * (1 + random.nextInt(5)), ratingCount,
+                    Timestamp.valueOf(start.plusMinutes(random.nextInt(1_000_000)))});
+            if (batch.size() == 1000) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+    }
+
+    private static void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO applications (name, category, description, developer_id, archiveName, " +
+                "pictureSmall, pictureBig, downloadCount, ratingSum, ratingCount, createdDate) " +
+                "VALUES (?, 'TOOLS', ?, 1, 'app.zip', X'', X'', ?, ?, ?, ?)", batch);
+    }
+
+    @AfterAll
+    static void dropCatalog() {
+        database.shutdown();
+    }
+
+    @Test
+    void findPage_deepPage_costsSameAsFirstPage() {
+        System.out.printf("%-10s %12s %12s %12s%n", "sort", "first (us)", "deep (us)", "offset (us)");
+        for (ApplicationSort sort : ApplicationSort.values()) {
+            PageCursor deepCursor = cursorAt(sort, DEEP_POSITION);
+
+            long first = median(() -> applicationPageRepository.findPage(Category.TOOLS, sort, null, null, PAGE_SIZE));
+            long deep = median(() -> {
+                ApplicationPage page = applicationPageRepository.findPage(Category.TOOLS, sort, deepCursor, null,
+                        PAGE_SIZE);
+                Assertions.assertEquals(PAGE_SIZE, page.applications().size());
+            });
+            long offset = median(() -> jdbcTemplate.queryForList("SELECT id FROM applications WHERE category = 'TOOLS' " +
+                    "ORDER BY " + orderBy(sort) + " LIMIT ? OFFSET ?", Long.class, PAGE_SIZE, DEEP_POSITION));
+            System.out.printf("%-10s %12d %12d %12d%n", sort, first / 1000, deep / 1000, offset / 1000);
+
+            Assertions.assertTrue(deep < Math.max(3 * first, first + 2_000_000),
+                    String.format("%s: deep page took %d ns, first page %d ns", sort, deep, first));
+        }
+    }
+
+    private static PageCursor cursorAt(ApplicationSort sort, int position) {
+        return jdbcTemplate.queryForObject("SELECT id, " + sort.getColumn() + " FROM applications " +
+                        "WHERE category = 'TOOLS' ORDER BY " + orderBy(sort) + " LIMIT 1 OFFSET ?",
+                (rs, rowNum) -> new PageCursor(sort.readKey(rs), rs.getLong("id")), position);
+    }
+
+    private static String orderBy(ApplicationSort sort) {
+        String direction = sort.isDescending() ? " DESC" : "";
+        return "category, " + sort.getColumn() + direction + ", id" + direction;
+    }
+
+    private static long median(Runnable query) {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            query.run();
+        }
+        long[] times = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times[ITERATIONS / 2];
+    }
+}
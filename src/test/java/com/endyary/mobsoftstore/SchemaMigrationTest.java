@@ -0,0 +1,135 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ContentHash;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.config.SchemaMigrator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class SchemaMigrationTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrate_onStartup_recordedInHistory() {
+        String checksum = jdbcTemplate.queryForObject("SELECT checksum FROM " + SchemaMigrator.HISTORY_TABLE
+                + " WHERE version = 1", String.class);
+        Assertions.assertEquals(64, checksum.length());
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT application_id "
+                + "FROM ratings GROUP BY application_id, user_id HAVING COUNT(*) > 1)", Integer.class));
+    }
+
+    @Test
+    void migrate_applied_notAppliedAgain() throws Exception {
+        Assertions.assertEquals(0, new SchemaMigrator(dataSource).migrate());
+    }
+
+    @Test
+    void migrate_appliedScriptChanged_fails() {
+        String table = SchemaMigrator.HISTORY_TABLE;
+        String checksum = jdbcTemplate.queryForObject("SELECT checksum FROM " + table + " WHERE version = 1",
+                String.class);
+        jdbcTemplate.update("UPDATE " + table + " SET checksum = 'changed' WHERE version = 1");
+        try {
+            Assertions.assertThrows(IllegalStateException.class, () -> new SchemaMigrator(dataSource).migrate());
+        } finally {
+            jdbcTemplate.update("UPDATE " + table + " SET checksum = ? WHERE version = 1", checksum);
+        }
+    }
+
+    @Test
+    void migrate_failedMigrationRecorded_fails() {
+        String table = SchemaMigrator.HISTORY_TABLE;
+        jdbcTemplate.update("INSERT INTO " + table + " (version, description, checksum, success, executionTime) "
+                + "VALUES (999, 'failed', 'checksum', FALSE, 0)");
+        try {
+            IllegalStateException e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> new SchemaMigrator(dataSource).migrate());
+            Assertions.assertTrue(e.getMessage().contains("V999"));
+        } finally {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE version = 999");
+        }
+    }
+
+    @Test
+    void migrate_onStartup_allVersionsSucceeded() {
+        Assertions.assertEquals(List.of(1, 2, 3, 4), jdbcTemplate.queryForList("SELECT version FROM "
+                + SchemaMigrator.HISTORY_TABLE + " WHERE success ORDER BY version", Integer.class));
+    }
+
+    @Test
+    void rating_duplicated_rejected() {
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO ratings (application_id, user_id, rating) VALUES (1, 3, 2)"));
+    }
+
+    @Test
+    void migrate_legacyImageVariants_sharedAsBlobs() throws Exception {
+        DataSource legacyDataSource = new DriverManagerDataSource("jdbc:h2:mem:legacyimages;DB_CLOSE_DELAY=-1");
+        JdbcTemplate legacyJdbcTemplate = new JdbcTemplate(legacyDataSource);
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(legacyDataSource);
+            legacyJdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (1, 'u', 'p', 'DEVELOPER')");
+            legacyJdbcTemplate.update("INSERT INTO applications (id, name, developer_id) VALUES (1, 'a', 1), (2, 'b', 1)");
+            byte[] content = {1, 2, 3};
+            String hash = ContentHash.of(content);
+            for (long applicationId : List.of(1L, 2L)) {
+                legacyJdbcTemplate.update("INSERT INTO application_images (application_id, size, contentType, "
+                        + "content, hash) VALUES (?, 64, 'image/png', ?, ?)", applicationId, content, hash);
+            }
+
+            new SchemaMigrator(legacyDataSource).migrate();
+
+            Assertions.assertEquals(2, legacyJdbcTemplate.queryForObject(
+                    "SELECT refCount FROM blobs WHERE hash = ?", Integer.class, hash));
+            Assertions.assertEquals(0, legacyJdbcTemplate.queryForObject("SELECT COUNT(*) "
+                    + "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'APPLICATION_IMAGES' "
+                    + "AND COLUMN_NAME = 'CONTENT'", Integer.class));
+        } finally {
+            legacyJdbcTemplate.execute("SHUTDOWN");
+        }
+    }
+
+    @Test
+    void findByUsername_explained_usesIndex() {
+        assertUsesIndex("users_username_idx", "SELECT * FROM users WHERE username = 'developer1'");
+    }
+
+    @Test
+    void findPage_explained_usesIndex() {
+        assertUsesIndex("applications_name_idx", "SELECT id, name FROM applications WHERE category = 'TOOLS' "
+                + "ORDER BY category, name, id LIMIT 20");
+    }
+
+    @Test
+    void getByApplicationAndUser_explained_usesIndex() {
+        assertUsesIndex("ratings_application_user_idx",
+                "SELECT * FROM ratings WHERE application_id = 1 AND user_id = 3");
+    }
+
+    private void assertUsesIndex(String index, String query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + query, String.class);
+        Assertions.assertTrue(plan.toLowerCase().contains("public." + index.toLowerCase()), plan);
+        Assertions.assertFalse(plan.contains("tableScan"), plan);
+    }
+}
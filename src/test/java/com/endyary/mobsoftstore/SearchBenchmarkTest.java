@@ -0,0 +1,143 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.search.SearchIndex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures search latency on a generated catalog of {@value #CATALOG_SIZE} applications,
+ * whose names and descriptions use a vocabulary with Zipf-like word frequencies.
+ * A LIKE scan over the same catalog is measured for reference.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class SearchBenchmarkTest {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    private static final int VOCABULARY_SIZE = 20_000;
+
+    private static final int QUERIES = 2_000;
+
+    private static EmbeddedDatabase database;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static String[] vocabulary;
+
+    private static SearchIndex searchIndex;
+
+    @BeforeAll
+    static void createCatalog() {
+        database = new EmbeddedDatabaseBuilder()
+                .setName("search-benchmark")
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (1, 'developer', '', 'DEVELOPER')");
+
+        Random random = new Random(42);
+        vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = Integer.toString(i * 7919 + 1_000_000, 36);
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            batch.add(new Object[]{words(random, 2) + " " + i, words(random, 20)});
+            if (batch.size() == 1000) {
+                insert(batch);
+                batch.clear();
+            }
+        }
+        insert(batch);
+
+        long start = System.nanoTime();
+        searchIndex = new SearchIndex(jdbcTemplate);
+        System.out.printf("Index of %d applications built in %d ms%n", searchIndex.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void insert(List<Object[]> batch) {
+        jdbcTemplate.batchUpdate("INSERT INTO applications (name, category, description, developer_id, archiveName, " +
+                "pictureSmall, pictureBig) VALUES (?, 'TOOLS', ?, 1, 'app.zip', X'', X'')", batch);
+    }
+
+    /**
+     * Returns words of the vocabulary, the word of rank r is picked with probability ~ 1/r
+     */
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int rank = (int) Math.pow(VOCABULARY_SIZE, random.nextDouble());
+            words.append(i == 0 ? "" : " ").append(vocabulary[rank - 1]);
+        }
+        return words.toString();
+    }
+
+    @AfterAll
+    static void dropCatalog() {
+        database.shutdown();
+    }
+
+    @Test
+    void search_syntheticCatalog_lowLatency() {
+        Random random = new Random(7);
+        System.out.printf("%-24s %10s %10s %10s%n", "query", "p50 (us)", "p99 (us)", "max (us)");
+        long[] common = measure(() -> vocabulary[random.nextInt(10)]);
+        long[] rare = measure(() -> vocabulary[1000 + random.nextInt(VOCABULARY_SIZE - 1000)]);
+        long[] twoTerms = measure(() -> words(random, 2));
+        long[] threeTerms = measure(() -> words(random, 3));
+        print("1 common term", common);
+        print("1 rare term", rare);
+        print("2 terms", twoTerms);
+        print("3 terms", threeTerms);
+
+        long likeStart = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.queryForList("SELECT id FROM applications WHERE LOWER(name) LIKE ? OR LOWER(description) " +
+                    "LIKE ? LIMIT 50", Long.class, "%" + vocabulary[500 + i] + "%", "%" + vocabulary[500 + i] + "%");
+        }
+        System.out.printf("%-24s %10d%n", "LIKE scan (avg)", (System.nanoTime() - likeStart) / 10_000);
+
+        Assertions.assertTrue(percentile(threeTerms, 99) < 50_000_000,
+                "99th percentile of 3 term queries took more than 50 ms");
+    }
+
+    private static long[] measure(Supplier<String> queries) {
+        for (int i = 0; i < QUERIES / 4; i++) {
+            searchIndex.search(queries.get(), 50);
+        }
+        long[] times = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String query = queries.get();
+            long start = System.nanoTime();
+            searchIndex.search(query, 50);
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times;
+    }
+
+    private static long percentile(long[] sortedTimes, int percentile) {
+        return sortedTimes[sortedTimes.length * percentile / 100];
+    }
+
+    private static void print(String query, long[] sortedTimes) {
+        System.out.printf("%-24s %10d %10d %10d%n", query, percentile(sortedTimes, 50) / 1000,
+                percentile(sortedTimes, 99) / 1000, sortedTimes[sortedTimes.length - 1] / 1000);
+    }
+}
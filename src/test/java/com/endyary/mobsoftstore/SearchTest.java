@@ -0,0 +1,214 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.Application;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.ApplicationSummary;
+import com.endyary.mobsoftstore.application.Category;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.search.NameSuggester;
+import com.endyary.mobsoftstore.search.SearchIndex;
+import com.endyary.mobsoftstore.search.Suggestion;
+import com.endyary.mobsoftstore.user.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class SearchTest {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    SearchIndex searchIndex;
+
+    @Autowired
+    NameSuggester nameSuggester;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void search_name_appFound() {
+        List<ApplicationSummary> apps = applicationService.search("apple", 10);
+        Assertions.assertFalse(apps.isEmpty());
+        Assertions.assertEquals("Apple", apps.get(0).name());
+    }
+
+    @Test
+    void search_upperCaseWithPunctuation_appFound() {
+        List<ApplicationSummary> apps = applicationService.search("TOOTH!?", 10);
+        Assertions.assertEquals(List.of("Tooth"), apps.stream().map(ApplicationSummary::name).toList());
+    }
+
+    @Test
+    void search_unknownTerm_noResults() {
+        Assertions.assertTrue(applicationService.search("xylophone", 10).isEmpty());
+        Assertions.assertTrue(applicationService.search(" ,. ", 10).isEmpty());
+    }
+
+    @Test
+    void search_severalMatches_rankedByWeight() {
+        searchIndex.add(-1, "Quokka notes", "Notes");
+        searchIndex.add(-2, "Notes", "Quokka quokka notes");
+        searchIndex.add(-3, "Quokka", "Quokka notes");
+
+        Assertions.assertEquals(List.of(-1L, -2L, -3L), searchIndex.search("quokka notes", 10));
+        Assertions.assertEquals(List.of(-3L), searchIndex.search("quokka", 1));
+    }
+
+    @Test
+    void add_existingApplication_reindexed() {
+        searchIndex.add(-10, "Wombat", "Wombat description");
+        int size = searchIndex.size();
+        searchIndex.add(-10, "Platypus", "Platypus description");
+
+        Assertions.assertTrue(searchIndex.search("wombat", 10).isEmpty());
+        Assertions.assertEquals(List.of(-10L), searchIndex.search("platypus", 10));
+        Assertions.assertEquals(size, searchIndex.size());
+    }
+
+    @Test
+    void save_committed_appSearchable() {
+        long id = applicationService.save(newApplication("Committed numbat")).getId();
+        Assertions.assertEquals(List.of(id), searchIndex.search("numbat", 10));
+    }
+
+    @Test
+    void save_rolledBack_appNotSearchable() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            applicationService.save(newApplication("Rolled back bilby"));
+            status.setRollbackOnly();
+        });
+        Assertions.assertTrue(searchIndex.search("bilby", 10).isEmpty());
+        Assertions.assertTrue(nameSuggester.suggest("bilby", 10).isEmpty());
+    }
+
+    @Test
+    void save_renamed_suggestedUnderNewName() {
+        Application application = applicationService.save(newApplication("Quoll tracker"));
+        Assertions.assertEquals(1, nameSuggester.suggest("quoll", 10).size());
+
+        application.setName("Dunnart tracker");
+        applicationService.save(application);
+
+        Assertions.assertTrue(nameSuggester.suggest("quoll", 10).isEmpty());
+        List<Suggestion> suggestions = nameSuggester.suggest("dunnart", 10);
+        Assertions.assertEquals(List.of("Dunnart tracker"), suggestions.stream().map(Suggestion::name).toList());
+        Assertions.assertEquals(application.getId(), suggestions.get(0).id());
+        Assertions.assertEquals(1, nameSuggester.suggest("tracker", 10).size());
+    }
+
+    @Test
+    void search_endpoint_resultsRendered() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        MockHttpServletResponse response = mockMvc.perform(get("/search").param("q", "rocket"))
+                .andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertTrue(response.getContentAsString().contains("/details/5"));
+    }
+
+    @Test
+    void suggest_prefix_rankedByDownloads() {
+        List<Suggestion> suggestions = applicationService.suggest("T", 10);
+        Assertions.assertTrue(suggestions.stream().map(Suggestion::name).toList()
+                .containsAll(List.of("Tooth", "Triangle", "Tux")));
+        for (int i = 1; i < suggestions.size(); i++) {
+            Assertions.assertTrue(suggestions.get(i - 1).downloadCount() >= suggestions.get(i).downloadCount());
+        }
+    }
+
+    @Test
+    void suggest_wordPrefix_appSuggestedOnce() {
+        nameSuggester.add(-20, "Chess Chess Champion", 0);
+        List<Suggestion> suggestions = applicationService.suggest("chess ch", 10);
+        Assertions.assertEquals(List.of(-20L), suggestions.stream().map(Suggestion::id).toList());
+        Assertions.assertEquals(1, applicationService.suggest("CHAMP", 10).size());
+    }
+
+    @Test
+    void suggest_downloaded_rankUpdated() {
+        nameSuggester.add(-21, "Zanzibar Maps", 5);
+        nameSuggester.add(-22, "Zanzibar Guide", 6);
+        Assertions.assertEquals(-22L, nameSuggester.suggest("zanzibar", 1).get(0).id());
+
+        nameSuggester.increment(-21);
+        nameSuggester.increment(-21);
+        Assertions.assertEquals(List.of(-21L, -22L),
+                nameSuggester.suggest("zanz", 10).stream().map(Suggestion::id).toList());
+    }
+
+    @Test
+    void suggest_concurrentWriters_noDownloadLost() throws Exception {
+        nameSuggester.add(-23, "Quokka Quest", 0);
+        int downloads = 2000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < downloads; i++) {
+                nameSuggester.increment(-23);
+                if (i % 200 == 0) {
+                    nameSuggester.add(-100 - i, "Quokka Clone " + i, 0);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<Suggestion> suggestions = nameSuggester.suggest("quokka", 20);
+            Assertions.assertEquals(-23L, suggestions.get(0).id());
+            for (int i = 1; i < suggestions.size(); i++) {
+                Assertions.assertTrue(suggestions.get(i - 1).downloadCount() >= suggestions.get(i).downloadCount());
+            }
+        }
+        writer.join();
+
+        Suggestion quest = nameSuggester.suggest("quokka q", 1).get(0);
+        Assertions.assertEquals(downloads, quest.downloadCount());
+        Assertions.assertEquals(11, nameSuggester.suggest("quokka", 20).size());
+    }
+
+    @Test
+    void suggest_endpoint_json() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        MockHttpServletResponse response = mockMvc.perform(get("/suggest").param("prefix", "tu"))
+                .andReturn().getResponse();
+
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE, response.getContentType());
+        Assertions.assertTrue(response.getContentAsString().contains("\"name\":\"Tux\""));
+    }
+
+    private Application newApplication(String name) {
+        Application application = new Application();
+        application.setName(name);
+        application.setCategory(Category.TOOLS);
+        application.setDescription(name + " description");
+        application.setArchiveName(name.toLowerCase().replace(' ', '-') + ".zip");
+        application.setCreatedBy(userService.findByUsername("developer1").orElseThrow());
+        application.setCreatedDate(LocalDateTime.now());
+        return application;
+    }
+}
@@ -0,0 +1,54 @@
+package com.endyary.mobsoftstore;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares the startup time and the latency of the first home page request on an empty DB file,
+ * which is seeded like the in-memory DB on every start, and on a restart with the existing DB file.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restart_existingDbFile_fasterStartup() throws Exception {
+        // Warms up the class loading and the JIT on a DB file of its own
+        startAndRequest(directory.resolve("warmup"));
+        Path dbFile = directory.resolve("storedb");
+        Timing seeded = startAndRequest(dbFile);
+        Timing restarted = startAndRequest(dbFile);
+        System.out.printf("Startup: %d ms seeding the DB, %d ms with the existing DB file%n",
+                seeded.startupMillis(), restarted.startupMillis());
+        System.out.printf("First request: %d ms after seeding, %d ms after the restart%n",
+                seeded.firstRequestMillis(), restarted.firstRequestMillis());
+
+        Assertions.assertTrue(restarted.startupMillis() < seeded.startupMillis());
+    }
+
+    private static Timing startAndRequest(Path dbFile) throws Exception {
+        long start = System.nanoTime();
+        try (AnnotationConfigWebApplicationContext context = DatabaseTest.start(dbFile)) {
+            long started = System.nanoTime();
+            MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+            mockMvc.perform(get("/")).andExpect(status().isOk());
+            return new Timing((started - start) / 1_000_000, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    private record Timing(long startupMillis, long firstRequestMillis) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.search.NameSuggester;
+import com.endyary.mobsoftstore.search.Suggestion;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the name suggestion lookup on a generated catalog of {@value #CATALOG_SIZE} applications.
+ * Prefixes of 1 to 4 characters are typed, the lookup latency distribution is sampled
+ * and its 99th percentile has to stay under 2 ms.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuggestBenchmarkTest {
+
+    private static final int CATALOG_SIZE = 100_000;
+
+    private static final String[] WORDS = {"photo", "music", "chess", "weather", "notes", "fitness", "map", "video",
+            "budget", "recipe", "translate", "scanner", "calendar", "radio", "puzzle", "runner", "garden", "sleep"};
+
+    private EmbeddedDatabase database;
+
+    private NameSuggester nameSuggester;
+
+    private String[] prefixes;
+
+    private int next;
+
+    @Setup
+    public void createCatalog() {
+        database = new EmbeddedDatabaseBuilder()
+                .setName("suggest-benchmark")
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (1, 'developer', '', 'DEVELOPER')");
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + Integer.toString(random.nextInt(), 36) + " "
+                    + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            batch.add(new Object[]{name, random.nextInt(1_000_000)});
+            if (batch.size() == 1000) {
+                jdbcTemplate.batchUpdate("INSERT INTO applications (name, category, description, developer_id, " +
+                        "archiveName, pictureSmall, pictureBig, downloadCount) " +
+                        "VALUES (?, 'TOOLS', '', 1, 'app.zip', X'', X'', ?)", batch);
+                batch.clear();
+            }
+        }
+        nameSuggester = new NameSuggester(jdbcTemplate);
+
+        prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(4, word.length())));
+        }
+    }
+
+    @TearDown
+    public void dropCatalog() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<Suggestion> suggest() {
+        next = (next + 1) & (prefixes.length - 1);
+        return nameSuggester.suggest(prefixes[next], 8);
+    }
+
+    @Test
+    void suggest_syntheticCatalog_p99Under2ms() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(SuggestBenchmarkTest.class.getName() + ".suggest")
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        double p99 = results.iterator().next().getPrimaryResult().getStatistics().getPercentile(99);
+        System.out.printf("Suggestion lookup p99: %.1f us%n", p99);
+        Assertions.assertTrue(p99 < 2000, "99th percentile of the lookup took more than 2 ms");
+    }
+}
@@ -0,0 +1,183 @@
+package com.endyary.mobsoftstore;
+
+import com.endyary.mobsoftstore.application.ApplicationRequest;
+import com.endyary.mobsoftstore.application.ApplicationService;
+import com.endyary.mobsoftstore.application.UploadJob;
+import com.endyary.mobsoftstore.application.UploadJobRepository;
+import com.endyary.mobsoftstore.application.UploadJobResponse;
+import com.endyary.mobsoftstore.application.UploadJobService;
+import com.endyary.mobsoftstore.application.UploadJobStatus;
+import com.endyary.mobsoftstore.config.DataDirectories;
+import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.user.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = {MvcConfig.class})
+@WebAppConfiguration
+class UploadJobTest {
+
+    @Autowired
+    WebApplicationContext webApplicationContext;
+
+    @Autowired
+    UploadJobService uploadJobService;
+
+    @Autowired
+    UploadJobRepository uploadJobRepository;
+
+    @Autowired
+    ApplicationService applicationService;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    DataDirectories dataDirectories;
+
+    @BeforeEach
+    void authenticate() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("developer1", null, List.of()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void addNewApp_validArchive_jobDoneAndApplicationStored() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        MockMultipartFile archive = new MockMultipartFile("archive", "circle.zip", "application/zip",
+                Files.readAllBytes(Path.of("src/main/resources/app-archive/upload/circle.zip")));
+
+        MvcResult result = mockMvc.perform(multipart("/addnewapp").file(archive)
+                .param("name", "Circle").param("category", "tools").param("description", "Circle description"))
+                .andReturn();
+        String jobId = (String) result.getModelAndView().getModel().get("jobId");
+        Assertions.assertNotNull(jobId);
+
+        UploadJobResponse job = awaitFinished(jobId);
+        Assertions.assertEquals(UploadJobStatus.DONE, job.status());
+        Assertions.assertEquals(UploadJobService.SUCCESS_MESSAGE, job.message());
+        Assertions.assertEquals("Circle", applicationService.findSummaryById(job.applicationId()).name());
+
+        String json = mockMvc.perform(get("/uploads/" + jobId)).andReturn().getResponse().getContentAsString();
+        Assertions.assertEquals(job, new ObjectMapper().readValue(json, UploadJobResponse.class));
+    }
+
+    @Test
+    void submit_archiveNotMatchingForm_jobFailed() throws Exception {
+        UploadJob job = uploadJobService.submit(request("Mismatch sample"), archive("Other name", "mismatch.zip"));
+
+        UploadJobResponse status = awaitFinished(job.id());
+        Assertions.assertEquals(UploadJobStatus.FAILED, status.status());
+        Assertions.assertEquals("Archive is not valid!", status.message());
+        Assertions.assertFalse(Files.exists(Path.of(job.archiveFile())));
+    }
+
+    @Test
+    void getUploadStatus_unknownJob_notFound() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Assertions.assertEquals(404, mockMvc.perform(get("/uploads/unknown")).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void submit_queueFull_rejectedAndCleanedUp() throws IOException {
+        Path jobDirectory = Files.createTempDirectory("jobs");
+        UploadJobService service = newService(jobDirectory, task -> {
+            throw new TaskRejectedException("Queue is full");
+        });
+
+        Assertions.assertThrows(TaskRejectedException.class,
+                () -> service.submit(request("Rejected sample"), archive("Rejected sample", "rejected.zip")));
+        try (var files = Files.list(jobDirectory)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void destroy_queuedJob_resumedOnNextStart() throws IOException, InterruptedException {
+        Path jobDirectory = Files.createTempDirectory("jobs");
+        List<Runnable> queue = new ArrayList<>();
+        UploadJobService service = newService(jobDirectory, queue::add);
+        UploadJob job = service.submit(request("Resumed sample"), archive("Resumed sample", "resumed.zip"));
+
+        // The queued job is taken by a worker after the shutdown started
+        service.destroy();
+        queue.forEach(Runnable::run);
+        Assertions.assertEquals(UploadJobStatus.QUEUED, uploadJobRepository.findById(job.id()).get().status());
+        Assertions.assertTrue(Files.exists(Path.of(job.archiveFile())));
+
+        newService(jobDirectory, Runnable::run).resumeJobs();
+        UploadJobResponse status = awaitFinished(job.id());
+        Assertions.assertEquals(UploadJobStatus.DONE, status.status());
+        Assertions.assertEquals("Resumed sample", applicationService.findSummaryById(status.applicationId()).name());
+    }
+
+    private UploadJobService newService(Path jobDirectory, TaskExecutor executor) throws IOException {
+        return new UploadJobService(jobDirectory.toString(), dataDirectories, executor, uploadJobRepository,
+                applicationService, userService);
+    }
+
+    private UploadJobResponse awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 300; i++) {
+            UploadJobResponse job = uploadJobService.findStatus(jobId).orElseThrow();
+            if (job.status().isFinished()) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Upload job " + jobId + " hasn't finished");
+    }
+
+    private static ApplicationRequest request(String name) {
+        ApplicationRequest request = new ApplicationRequest();
+        request.setName(name);
+        request.setCategory("tools");
+        request.setDescription(name + " description");
+        return request;
+    }
+
+    private static MockMultipartFile archive(String name, String archiveName) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            zos.putNextEntry(new ZipEntry("app.txt"));
+            zos.write(("name: " + name + "\npackage: " + archiveName + "\n").getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+        return new MockMultipartFile("archive", archiveName, "application/zip", out.toByteArray());
+    }
+}
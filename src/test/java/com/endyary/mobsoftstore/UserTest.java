@@ -2,23 +2,39 @@ package com.endyary.mobsoftstore;
 
 
 import com.endyary.mobsoftstore.config.MvcConfig;
+import com.endyary.mobsoftstore.config.PooledPasswordEncoder;
 import com.endyary.mobsoftstore.user.AuthService;
 import com.endyary.mobsoftstore.user.Role;
 import com.endyary.mobsoftstore.user.User;
+import com.endyary.mobsoftstore.user.UserPrincipal;
 import com.endyary.mobsoftstore.user.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
 
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ExtendWith(SpringExtension.class)
 @ContextConfiguration(classes = {MvcConfig.class})
@@ -31,6 +47,12 @@ class UserTest {
     @Autowired
     AuthService authService;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     void findByUsername_validUsername_foundWithValidRole() {
         Optional<User> dbUser = userService.findByUsername("developer1");
@@ -58,6 +80,111 @@ class UserTest {
         Assertions.assertTrue(auth.getAuthorities().contains(roleDeveloper));
     }
 
+    @Test
+    void authUser_validCredentials_principalWithIdAndRole() {
+        Authentication auth = authService.doAuth("user2", "password");
+
+        UserPrincipal principal = (UserPrincipal) auth.getPrincipal();
+        Assertions.assertEquals(userService.findByUsername("user2").orElseThrow().getId(), principal.getId());
+        Assertions.assertEquals(Role.USER, principal.getRole());
+    }
+
+    @Test
+    void getCurrentUser_authenticated_resolvedWithoutQuery() {
+        Authentication auth = authService.doAuth("developer2", "password");
+        long id = ((UserPrincipal) auth.getPrincipal()).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        SecurityContextHolder.getContext().setAuthentication(auth);
+        try {
+            User user = userService.getCurrentUser();
+
+            Assertions.assertEquals(id, user.getId());
+            Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+        } finally {
+            SecurityContextHolder.clearContext();
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void insertUser_duplicateUsername_rejected() {
+        Assertions.assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO users (username, password, role) VALUES ('user1', 'password', 'USER')"));
+    }
+
+    @Test
+    void authUser_weakerHash_upgradedOnLogin() {
+        jdbcTemplate.update("INSERT INTO users (username, password, role) VALUES ('legacy', ?, 'USER')",
+                new BCryptPasswordEncoder(4).encode("secret"));
+
+        authService.doAuth("legacy", "secret");
+
+        String hash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'legacy'",
+                String.class);
+        Assertions.assertTrue(hash.startsWith("{bcrypt}$2a$10$"), hash);
+        Assertions.assertTrue(authService.doAuth("legacy", "secret").isAuthenticated());
+    }
+
+    @Test
+    void pooledEncoder_verifiedCredential_notHashedAgain() {
+        AtomicInteger hashings = new AtomicInteger();
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        PasswordEncoder counting = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return bcrypt.encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                hashings.incrementAndGet();
+                return bcrypt.matches(rawPassword, encodedPassword);
+            }
+        };
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder(counting, executor(1, 4), Duration.ofMinutes(1), 10);
+        String hash = bcrypt.encode("secret");
+
+        Assertions.assertTrue(encoder.matches("secret", hash));
+        Assertions.assertTrue(encoder.matches("secret", hash));
+        Assertions.assertFalse(encoder.matches("wrong", hash));
+        Assertions.assertFalse(encoder.matches("wrong", hash));
+        Assertions.assertEquals(3, hashings.get());
+    }
+
+    @Test
+    void pooledEncoder_saturated_failsFast() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder blocking = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+        };
+        ThreadPoolTaskExecutor executor = executor(1, 0);
+        PooledPasswordEncoder encoder = new PooledPasswordEncoder(blocking, executor, Duration.ofMinutes(1), 10);
+        Thread login = new Thread(() -> encoder.matches("first", "hash"));
+        login.start();
+        while (executor.getActiveCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        Assertions.assertThrows(AuthenticationServiceException.class, () -> encoder.matches("second", "hash"));
+        release.countDown();
+        login.join();
+        executor.shutdown();
+    }
+
     @Test
     void authUser_invalidCredentials_throwBadCredentials() {
         String username = "developer123";
@@ -66,4 +193,12 @@ class UserTest {
         Assertions.assertThrows(BadCredentialsException.class, () -> authService.doAuth(username, password));
     }
 
+    private static ThreadPoolTaskExecutor executor(int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+        return executor;
+    }
 }